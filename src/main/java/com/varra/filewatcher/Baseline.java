@@ -0,0 +1,449 @@
+/*
+ * FileWatcher - Baseline.java, Oct 18, 2026 12:10:54 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.filewatcher.fs.FileAttributes;
+import com.varra.filewatcher.fs.WatchedFileSystem;
+import com.varra.filewatcher.info.FileInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * Indexes a root directory in parallel, recording only the attributes the
+ * scan compares, without building a {@link FileInfo} or any notification.
+ * Every directory is listed by its own fork join task. A directory is ready
+ * once all of its subtree is indexed and taken, its changes can be notified
+ * from then on, while the rest of the root is still being indexed.
+ * <p>
+ * The entries are handed over in batches, one per directory, a directory's
+ * batch always after the one holding the directory itself. Beyond the
+ * entries it may hold in memory, the files of a batch are spilled to disk
+ * until the batch is taken, only its directories are held.
+ * <p>
+ * The roots already scanned under the root are not walked, they are ready
+ * from the start.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ *
+ */
+final class Baseline
+{
+
+	/** The root. */
+	private final String root;
+
+	/** The file system. */
+	private final WatchedFileSystem fileSystem;
+
+	/** The roots already scanned under the root, not walked. */
+	private final Set<String> scanned;
+
+	/**
+	 * The directories ready, none under another, only read and updated by
+	 * the thread taking the batches.
+	 */
+	private final NavigableSet<String> ready;
+
+	/** The directories whose whole subtree is taken, not ready yet. */
+	private final List<String> completed;
+
+	/** The entries indexed, in batches of one directory each. */
+	private final Queue<Batch> entries;
+
+	/** The number of entries indexed so far. */
+	private final LongAdder indexed;
+
+	/** The entries held in memory until taken, 0 for no limit. */
+	private final long maxHeld;
+
+	/** The directory of the spill file. */
+	private final Path spillDirectory;
+
+	/** The entries of the batches held in memory. */
+	private final AtomicLong held;
+
+	/** The files of the batches spilled, created on the first need. */
+	private SpillStore spillStore;
+
+	/** The walk of the root. */
+	private final ForkJoinTask<Void> task;
+
+	/** Whether cancelled, the walks stop listing and forking. */
+	private volatile boolean cancelled;
+
+	/**
+	 * Instantiates and starts a new baseline of the given root.
+	 *
+	 * @param root
+	 *            the absolute root
+	 * @param fileSystem
+	 *            the file system
+	 * @param pool
+	 *            the pool
+	 * @param maxHeld
+	 *            the entries held in memory until taken, 0 for no limit
+	 * @param spillDirectory
+	 *            the directory of the spill file
+	 * @param scanned
+	 *            the roots already scanned under the root
+	 */
+	Baseline(String root, WatchedFileSystem fileSystem, ForkJoinPool pool, long maxHeld, Path spillDirectory,
+			Set<String> scanned)
+	{
+		this.root = root;
+		this.fileSystem = fileSystem;
+		this.scanned = scanned;
+		this.ready = new TreeSet<>(scanned);
+		this.completed = new ArrayList<>();
+		this.entries = new ConcurrentLinkedQueue<>();
+		this.indexed = new LongAdder();
+		this.maxHeld = maxHeld;
+		this.spillDirectory = spillDirectory;
+		this.held = new AtomicLong();
+		this.task = pool.submit(new Walk(root, true));
+	}
+
+	/**
+	 * Gets the root.
+	 *
+	 * @return the root
+	 */
+	String getRoot()
+	{
+		return root;
+	}
+
+	/**
+	 * Gets the directories ready, none under another: the roots scanned
+	 * before, and the directories whose whole subtree was taken before the
+	 * last {@link #updateReady()}.
+	 *
+	 * @return the ready directories
+	 */
+	Set<String> getReady()
+	{
+		return ready;
+	}
+
+	/**
+	 * Makes ready the directories whose whole subtree is taken since the
+	 * last call. Called before scanning the ready directories, so a
+	 * directory is ready only once scanned.
+	 *
+	 * @return the ready directories
+	 */
+	Set<String> updateReady()
+	{
+		for (String directory : completed)
+		{
+			final String prefix = directory.endsWith(File.separator) ? directory : directory + File.separator;
+			ready.subSet(prefix, prefix + Character.MAX_VALUE).clear();
+			ready.add(directory);
+		}
+		completed.clear();
+		return ready;
+	}
+
+	/**
+	 * Gets the number of entries indexed so far.
+	 *
+	 * @return the indexed
+	 */
+	long getIndexed()
+	{
+		return indexed.sum();
+	}
+
+	/**
+	 * Checks if the baseline is done.
+	 *
+	 * @return true, if is done
+	 */
+	boolean isDone()
+	{
+		return task.isDone();
+	}
+
+	/**
+	 * Cancels the baseline, the walks running stop at their next directory.
+	 */
+	void cancel()
+	{
+		cancelled = true;
+		task.cancel(true);
+		entries.clear();
+		close();
+	}
+
+	/**
+	 * Takes the next batch of entries indexed, with its spilled files read
+	 * back; all of them are taken once {@link #isDone()} and none is left.
+	 * The directories whose subtree is taken are recorded on the way, to be
+	 * made ready by {@link #updateReady()}.
+	 *
+	 * @return the batch, null if none yet
+	 */
+	Batch poll()
+	{
+		Batch batch = entries.poll();
+		while (batch != null && batch.complete)
+		{
+			// Every batch of its subtree is taken already.
+			completed.add(batch.directory);
+			batch = entries.poll();
+		}
+		if (batch == null)
+		{
+			return null;
+		}
+		held.addAndGet(-batch.entries.size());
+		if (batch.spilled)
+		{
+			try
+			{
+				synchronized (this)
+				{
+					batch.entries.addAll(spillStore.read(batch.directory));
+				}
+			}
+			catch (IOException e)
+			{
+				// The files lost are notified as created by the next scan.
+				e.printStackTrace();
+			}
+		}
+		return batch;
+	}
+
+	/**
+	 * Releases the spill file, once every batch is taken or on cancel.
+	 */
+	synchronized void close()
+	{
+		if (spillStore != null)
+		{
+			try
+			{
+				spillStore.close();
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+			spillStore = null;
+		}
+	}
+
+	/**
+	 * Spills the files of the batch, keeping only its directories in memory.
+	 *
+	 * @param batch
+	 *            the batch
+	 * @return the batch held instead, the same if it could not be spilled
+	 */
+	private Batch spill(Batch batch)
+	{
+		final List<TrackedFile> directories = new ArrayList<>();
+		final List<TrackedFile> files = new ArrayList<>();
+		for (TrackedFile trackedFile : batch.entries)
+		{
+			(trackedFile.directory ? directories : files).add(trackedFile);
+		}
+		if (files.isEmpty())
+		{
+			return batch;
+		}
+		try
+		{
+			synchronized (this)
+			{
+				if (cancelled)
+				{
+					return batch;
+				}
+				if (spillStore == null)
+				{
+					spillStore = new SpillStore(spillDirectory);
+				}
+				spillStore.write(batch.directory, files);
+			}
+		}
+		catch (IOException e)
+		{
+			// Held in memory instead.
+			e.printStackTrace();
+			return batch;
+		}
+		return new Batch(batch.directory, directories, true, false);
+	}
+
+	/**
+	 * The entries of a single directory: its files and sub directories, and
+	 * the directory itself for the root. Once its whole subtree is queued, a
+	 * directory is marked complete by a batch of no entries.
+	 */
+	static final class Batch
+	{
+
+		/** The directory. */
+		final String directory;
+
+		/** The entries, without the spilled files until taken. */
+		final List<TrackedFile> entries;
+
+		/** Whether the files are spilled. */
+		final boolean spilled;
+
+		/** Whether it only marks the subtree of the directory complete. */
+		final boolean complete;
+
+		/**
+		 * Instantiates a new batch.
+		 *
+		 * @param directory
+		 *            the directory
+		 * @param entries
+		 *            the entries
+		 * @param spilled
+		 *            whether the files are spilled
+		 * @param complete
+		 *            whether it only marks the subtree complete
+		 */
+		Batch(String directory, List<TrackedFile> entries, boolean spilled, boolean complete)
+		{
+			this.directory = directory;
+			this.entries = entries;
+			this.spilled = spilled;
+			this.complete = complete;
+		}
+	}
+
+	/**
+	 * Lists a single directory and forks a walk for each of its sub
+	 * directories.
+	 */
+	private final class Walk extends RecursiveAction
+	{
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 6021837462850170214L;
+
+		/** The directory. */
+		private final String directory;
+
+		/** Whether the directory itself has to be recorded, only the root. */
+		private final boolean recordSelf;
+
+		/**
+		 * Instantiates a new walk.
+		 *
+		 * @param directory
+		 *            the directory
+		 * @param recordSelf
+		 *            whether the directory itself has to be recorded
+		 */
+		private Walk(String directory, boolean recordSelf)
+		{
+			this.directory = directory;
+			this.recordSelf = recordSelf;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (cancelled)
+			{
+				return;
+			}
+			final List<TrackedFile> batch = new ArrayList<>();
+			final FileAttributes attributes = new FileAttributes();
+			if (recordSelf)
+			{
+				record(batch, directory, attributes);
+			}
+			final String[] names = fileSystem.list(directory);
+			final List<Walk> walks = new ArrayList<>();
+			if (nonNull(names))
+			{
+				final String prefix = directory.endsWith(File.separator) ? directory : directory + File.separator;
+				for (final String name : names)
+				{
+					final String path = prefix + name;
+					if (scanned.contains(path))
+					{
+						continue;
+					}
+					if (record(batch, path, attributes) && attributes.isDirectory())
+					{
+						walks.add(new Walk(path, false));
+					}
+				}
+			}
+			if (cancelled)
+			{
+				return;
+			}
+			Batch queued = new Batch(directory, batch, false, false);
+			if (maxHeld > 0 && held.get() + batch.size() > maxHeld)
+			{
+				queued = spill(queued);
+			}
+			held.addAndGet(queued.entries.size());
+			entries.add(queued);
+			indexed.add(batch.size());
+			invokeAll(walks);
+			if (!cancelled)
+			{
+				entries.add(new Batch(directory, Collections.<TrackedFile>emptyList(), false, true));
+			}
+		}
+
+		/**
+		 * Records the file in the batch, skipping the backups and the files
+		 * vanished meanwhile.
+		 *
+		 * @param batch
+		 *            the batch
+		 * @param path
+		 *            the path
+		 * @param attributes
+		 *            the attributes holder
+		 * @return true, if the file exists
+		 */
+		private boolean record(List<TrackedFile> batch, String path, FileAttributes attributes)
+		{
+			if (!fileSystem.readAttributes(path, attributes))
+			{
+				return false;
+			}
+			if (!FileInfo.isBackup(path))
+			{
+				batch.add(new TrackedFile(path, attributes.lastModified(), attributes.getSize(),
+						attributes.isDirectory()));
+			}
+			return true;
+		}
+	}
+}
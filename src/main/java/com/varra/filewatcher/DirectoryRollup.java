@@ -0,0 +1,133 @@
+/*
+ * FileWatcher - DirectoryRollup.java, Oct 18, 2026 8:31:15 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.classification.InterfaceAudience;
+import com.varra.classification.InterfaceStability;
+
+/**
+ * The totals of everything under a watched directory, at any depth, as of
+ * the last completed scan.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class DirectoryRollup
+{
+
+	/** The absolute directory. */
+	private final String directory;
+
+	/** The files under the directory. */
+	private final long files;
+
+	/** The directories under the directory. */
+	private final long directories;
+
+	/** The total size of the files under the directory. */
+	private final long bytes;
+
+	/** The newest last modified under the directory. */
+	private final long newestModified;
+
+	/**
+	 * Instantiates a new directory rollup.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @param files
+	 *            the files
+	 * @param directories
+	 *            the directories
+	 * @param bytes
+	 *            the bytes
+	 * @param newestModified
+	 *            the newest modified
+	 */
+	DirectoryRollup(String directory, long files, long directories, long bytes, long newestModified)
+	{
+		this.directory = directory;
+		this.files = files;
+		this.directories = directories;
+		this.bytes = bytes;
+		this.newestModified = newestModified;
+	}
+
+	/**
+	 * Gets the absolute directory.
+	 *
+	 * @return the directory
+	 */
+	public String getDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Gets the files under the directory.
+	 *
+	 * @return the files
+	 */
+	public long getFiles()
+	{
+		return files;
+	}
+
+	/**
+	 * Gets the directories under the directory, not counting itself.
+	 *
+	 * @return the directories
+	 */
+	public long getDirectories()
+	{
+		return directories;
+	}
+
+	/**
+	 * Gets the total size of the files under the directory.
+	 *
+	 * @return the bytes
+	 */
+	public long getBytes()
+	{
+		return bytes;
+	}
+
+	/**
+	 * Gets the newest last modified seen under the directory, it is not
+	 * lowered when the newest file is deleted.
+	 *
+	 * @return the newest modified
+	 */
+	public long getNewestModified()
+	{
+		return newestModified;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		final StringBuilder builder = new StringBuilder();
+		builder.append("DirectoryRollup [directory=");
+		builder.append(directory);
+		builder.append(", files=");
+		builder.append(files);
+		builder.append(", directories=");
+		builder.append(directories);
+		builder.append(", bytes=");
+		builder.append(bytes);
+		builder.append(", newestModified=");
+		builder.append(newestModified);
+		builder.append("]");
+		return builder.toString();
+	}
+}
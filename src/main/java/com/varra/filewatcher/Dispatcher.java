@@ -0,0 +1,229 @@
+/*
+ * FileWatcher - Dispatcher.java, Oct 18, 2026 1:52:36 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers the notifications to the listeners on a number of lanes, each a
+ * single thread. A notification is put on the lane its key hashes to, so the
+ * notifications of the same key are delivered one after another in the
+ * order they were dispatched, while the different keys are delivered in
+ * parallel. With no lanes the notifications are delivered on the calling
+ * thread.
+ * <p>
+ * A lane queues a bounded number of notifications. Once a lane is full, the
+ * thread dispatching, i.e. the scan, blocks until the lane has room: a slow
+ * listener slows the scans down rather than filling the heap. Running the
+ * notification on the dispatching thread instead would overtake the ones
+ * queued for the same key.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ *
+ */
+final class Dispatcher
+{
+
+	/** The notifications a lane queues at most. */
+	static final int LANE_CAPACITY = 4096;
+
+	/** The lanes, null when delivering on the calling thread. */
+	private final ThreadPoolExecutor[] lanes;
+
+	/**
+	 * Instantiates a new dispatcher.
+	 *
+	 * @param lanes
+	 *            the number of lanes, 0 to deliver on the calling thread
+	 * @param name
+	 *            the name of the lane threads
+	 */
+	Dispatcher(int lanes, String name)
+	{
+		this(lanes, name, LANE_CAPACITY);
+	}
+
+	/**
+	 * Instantiates a new dispatcher.
+	 *
+	 * @param lanes
+	 *            the number of lanes, 0 to deliver on the calling thread
+	 * @param name
+	 *            the name of the lane threads
+	 * @param capacity
+	 *            the notifications a lane queues at most
+	 */
+	Dispatcher(int lanes, String name, int capacity)
+	{
+		if (lanes <= 0)
+		{
+			this.lanes = null;
+			return;
+		}
+		this.lanes = new ThreadPoolExecutor[lanes];
+		for (int i = 0; i < lanes; i++)
+		{
+			final String threadName = name + "-dispatch-" + i;
+			this.lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(capacity), runnable -> {
+						final Thread thread = new Thread(runnable, threadName);
+						thread.setDaemon(true);
+						return thread;
+					}, Dispatcher::block);
+		}
+	}
+
+	/**
+	 * Queues the notification on its full lane, blocking until the lane has
+	 * room.
+	 *
+	 * @param notification
+	 *            the notification
+	 * @param lane
+	 *            the lane
+	 */
+	private static void block(Runnable notification, ThreadPoolExecutor lane)
+	{
+		if (lane.isShutdown())
+		{
+			throw new RejectedExecutionException("The dispatcher is shut down.");
+		}
+		try
+		{
+			lane.getQueue().put(notification);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RejectedExecutionException(e);
+		}
+	}
+
+	/**
+	 * Gets the lane of the given key.
+	 *
+	 * @param key
+	 *            the key
+	 * @param lanes
+	 *            the number of lanes
+	 * @return the index of the lane
+	 */
+	static int laneOf(String key, int lanes)
+	{
+		return (key.hashCode() & Integer.MAX_VALUE) % lanes;
+	}
+
+	/**
+	 * Dispatches the notification on the lane of the given key.
+	 *
+	 * @param key
+	 *            the key, usually the path
+	 * @param notification
+	 *            the notification
+	 */
+	void dispatch(String key, Runnable notification)
+	{
+		if (lanes == null)
+		{
+			notification.run();
+			return;
+		}
+		lanes[laneOf(key, lanes.length)].execute(() -> {
+			try
+			{
+				notification.run();
+			}
+			catch (RuntimeException e)
+			{
+				// A failing listener is reported, the lane carries on.
+				e.printStackTrace();
+			}
+		});
+	}
+
+	/**
+	 * Dispatches the notification in order with every lane: it is delivered
+	 * once the notifications dispatched before it are, and the ones
+	 * dispatched after it wait for it; e.g. for a notification spanning many
+	 * keys. The lanes are held meanwhile, so it is meant for the rare ones.
+	 *
+	 * @param notification
+	 *            the notification
+	 */
+	void dispatchToAll(Runnable notification)
+	{
+		if (lanes == null)
+		{
+			notification.run();
+			return;
+		}
+		final CountDownLatch arrived = new CountDownLatch(lanes.length);
+		final CountDownLatch delivered = new CountDownLatch(1);
+		for (int i = 1; i < lanes.length; i++)
+		{
+			lanes[i].execute(() -> {
+				arrived.countDown();
+				await(delivered);
+			});
+		}
+		lanes[0].execute(() -> {
+			try
+			{
+				arrived.countDown();
+				await(arrived);
+				notification.run();
+			}
+			catch (RuntimeException e)
+			{
+				// A failing listener is reported, the lanes carry on.
+				e.printStackTrace();
+			}
+			finally
+			{
+				delivered.countDown();
+			}
+		});
+	}
+
+	/**
+	 * Awaits the latch, a lane interrupted by its shutdown carries on.
+	 *
+	 * @param latch
+	 *            the latch
+	 */
+	private static void await(CountDownLatch latch)
+	{
+		try
+		{
+			latch.await();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Shutdowns the lanes, the notifications already dispatched are still
+	 * delivered.
+	 */
+	void shutdown()
+	{
+		if (lanes != null)
+		{
+			for (ThreadPoolExecutor lane : lanes)
+			{
+				lane.shutdown();
+			}
+		}
+	}
+}
@@ -6,11 +6,23 @@
  */
 package com.varra.filewatcher;
 
+import com.varra.filewatcher.ListenerRegistry.Registration;
+import com.varra.filewatcher.ListenerRegistry.Snapshot;
+import com.varra.filewatcher.fs.FileAttributes;
+import com.varra.filewatcher.fs.LocalFileSystem;
+import com.varra.filewatcher.fs.WatchedFileSystem;
 import com.varra.filewatcher.info.FileInfo;
+import com.varra.filewatcher.info.SubtreeInfo;
+import com.varra.filewatcher.journal.EventJournal;
+import com.varra.filewatcher.journal.JournalRecord;
 import com.varra.filewatcher.listener.AbstractFileNotificationListener;
+import com.varra.filewatcher.listener.BaselineProgressListener;
 import com.varra.filewatcher.listener.FileNotificationListener;
+import com.varra.filewatcher.listener.RollupThresholdListener;
+import com.varra.filewatcher.listener.SubscriptionMask;
+import com.varra.filewatcher.listener.TailListener;
+import com.varra.filewatcher.listener.WatchEventType;
 import com.varra.util.EnhancedTimerTask;
-import com.varra.util.FIFOQueue;
 import com.varra.util.GlobalThread;
 import com.varra.util.StringUtils;
 import lombok.AccessLevel;
@@ -20,12 +32,32 @@ import lombok.Getter;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FilenameFilter;
-import java.util.LinkedHashMap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
 
+import static com.varra.filewatcher.listener.WatchEventType.CREATE;
+import static com.varra.filewatcher.listener.WatchEventType.DELETE;
+import static com.varra.filewatcher.listener.WatchEventType.MODIFY;
 import static java.util.Objects.nonNull;
 
 /**
@@ -53,18 +85,139 @@ public class FileWatcher
 	/** The file watcher. */
 	private static FileWatcher fileWatcher;
 	
+	/** The events buffered per subscriber of a publisher, by default. */
+	private static final int DEFAULT_PUBLISHER_BUFFER = 1024;
+	
+	/** The dirty subtrees beyond which a full scan is cheaper. */
+	private static final int MAX_DIRTY_SUBTREES = 1024;
+
+	/** The power of two of the most scans an unlistable directory is retried after. */
+	private static final int MAX_LIST_BACKOFF = 10;
+
+	/** The most scans skipped in a row while backpressured, the next one runs anyway. */
+	static final int MAX_THROTTLED_SCANS = 30;
+	
 	/** The abstract file watcher. */
 	@Getter(AccessLevel.NONE)
 	private final AbstractFileWatcher abstractFileWatcher = new AbstractFileWatcher();
 	
-	/** The listeners. */
+	/** The listeners and the directories they are registered for. */
 	@Getter(AccessLevel.NONE)
-	private transient final Map<String, FileNotificationListener> listeners = new LinkedHashMap<>();
+	private transient final ListenerRegistry registry = new ListenerRegistry();
 	
 	/** The interval in milli seconds. */
 	private long interval = 2000;
 
 	private boolean initialScanNotificationRequired;
+
+	/**
+	 * Whether the creates and modifies are notified as soon as the scan
+	 * observes them, instead of after the whole tree is scanned. Deletes are
+	 * always notified at the end of the scan.
+	 */
+	private boolean streamingNotification;
+
+	/**
+	 * The number of threads indexing the registered directories when their
+	 * initial scan is not notified, defaults to the number of processors. A
+	 * directory is notified once all of its subtree is indexed.
+	 */
+	private int baselineParallelism;
+
+	/** The listener of the initial indexing progress, optional. */
+	private BaselineProgressListener baselineProgressListener;
+
+	/**
+	 * The number of threads delivering the notifications, the notifications of
+	 * the same file are always delivered in order on the same thread while the
+	 * different files are delivered in parallel; a subtree event, spanning
+	 * many files, waits for all of the threads. A thread queues a bounded
+	 * number of notifications, the scan waits for room beyond. Defaults to 0,
+	 * delivering on the watcher's own thread.
+	 */
+	private int dispatchThreads;
+
+	/**
+	 * Whether the notifications are ordered per registered directory rather
+	 * than per file, when delivered by the {@link #dispatchThreads}.
+	 */
+	private boolean dispatchOrderedByDirectory;
+
+	/** The filesystem watched, defaults to the {@link LocalFileSystem}. */
+	private WatchedFileSystem fileSystem;
+
+	/**
+	 * The interval in milli seconds of the full verification scans. When set,
+	 * the scans in between rescan only the subtrees marked dirty, see
+	 * {@link #markDirty(String)}. Defaults to 0, every scan is a full scan.
+	 */
+	private long fullScanInterval;
+
+	/**
+	 * The journal every event is appended to before it is notified, optional.
+	 * The events of a scan are committed together, before any of them is
+	 * notified; when streaming, the creates and modifies are notified as soon
+	 * as appended and committed at the end of the scan. An event the journal
+	 * fails to append, e.g. on a full disk, is still notified with the
+	 * sequence 0, and counted by {@link WatcherMetrics#getJournalFailures()}.
+	 */
+	private EventJournal journal;
+
+	/**
+	 * Whether the files watched are kept in a {@link WatcherIndex} to be
+	 * queried, see {@link #getIndex()}. The index holds every entry in
+	 * memory, so it cannot be combined with {@link #maxResidentEntries}.
+	 */
+	private boolean indexed;
+
+	/** The index, maintained only if {@link #indexed}. */
+	@Getter(AccessLevel.NONE)
+	private final WatcherIndex index = new WatcherIndex(path -> fileSystem().getAbsolutePath(path));
+
+	/**
+	 * Whether the totals of every watched directory are maintained, see
+	 * {@link #getRollup(String)}.
+	 */
+	private boolean directoryRollups;
+
+	/** The rollups, maintained only if {@link #directoryRollups}. */
+	@Getter(AccessLevel.NONE)
+	private final Rollups rollups = new Rollups();
+
+	/**
+	 * The entries of the snapshot held in memory, beyond which the files of
+	 * the directories are spilled to the {@link #spillDirectory} and read back
+	 * when their directories are scanned again. The baselines are merged and
+	 * spilled batch by batch within the same budget. Defaults to 0,
+	 * everything is held in memory. Cannot be combined with {@link #indexed},
+	 * the watcher then fails to start.
+	 */
+	private long maxResidentEntries;
+
+	/**
+	 * The directory the snapshot spills to, defaults to a
+	 * <code>file-watcher</code> directory under <code>java.io.tmpdir</code>.
+	 */
+	private Path spillDirectory;
+
+	/**
+	 * The adapters of the tail listeners registered, one per directory so
+	 * that each tracks its own offsets.
+	 */
+	@Getter(AccessLevel.NONE)
+	private final Map<TailListener, Map<String, TailingListener>> tailingListeners = new ConcurrentHashMap<>();
+
+	/** The publishers registered. */
+	@Getter(AccessLevel.NONE)
+	private final List<WatchEventPublisher> publishers = new CopyOnWriteArrayList<>();
+
+	/** The metrics. */
+	@Getter(AccessLevel.NONE)
+	private final WatcherMetrics metrics = new WatcherMetrics();
+
+	/** The readiness, completes once every registered directory is watched. */
+	@Getter(AccessLevel.NONE)
+	private final CompletableFuture<FileWatcher> readiness = new CompletableFuture<>();
 	
 	/**
 	 * Instantiates a new file watcher.
@@ -76,22 +229,225 @@ public class FileWatcher
 
 	/**
 	 * Registers file notification listener and starts notifying to the given
-	 * listener.
+	 * listener. A directory may have any number of listeners, and directories
+	 * can be registered while running, they are picked up at the next scan.
+	 * 
+	 * @param listener
+	 *            the listener
+	 * @param directory
+	 *            the dir
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public FileWatcher registerListener(FileNotificationListener listener, String directory)
+			throws FileNotFoundException
+	{
+		return registerListener(listener, directory, SubscriptionMask.ALL);
+	}
+	
+	/**
+	 * Registers file notification listener for only the events matching the
+	 * given mask, the other events are never delivered to the listener.
 	 * 
 	 * @param listener
 	 *            the listener
 	 * @param directory
 	 *            the dir
+	 * @param mask
+	 *            the events subscribed to
 	 * @throws FileNotFoundException
 	 *             the file not found exception
 	 */
-	public synchronized FileWatcher registerListener(FileNotificationListener listener, String directory)
+	public FileWatcher registerListener(FileNotificationListener listener, String directory, SubscriptionMask mask)
 			throws FileNotFoundException
 	{
-		abstractFileWatcher.registerFileNotificationListener(listener, directory);
+		abstractFileWatcher.registerFileNotificationListener(listener, directory, mask, -1);
+		return this;
+	}
+	
+	/**
+	 * Registers file notification listener, first replaying to it the events
+	 * of the {@link #journal} from the given sequence on, e.g. the one
+	 * following the {@link FileInfo#getSequence()} it last processed. The
+	 * replayed events are delivered ahead of the live ones, at the next scan;
+	 * a replayed modify has the same old and new file info, as only the new
+	 * one is journaled.
+	 * 
+	 * @param listener
+	 *            the listener
+	 * @param directory
+	 *            the dir
+	 * @param mask
+	 *            the events subscribed to
+	 * @param fromSequence
+	 *            the sequence of the first event to replay
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public FileWatcher registerListener(FileNotificationListener listener, String directory, SubscriptionMask mask,
+			long fromSequence) throws FileNotFoundException
+	{
+		if (journal == null)
+		{
+			throw new IllegalStateException("No journal to replay from.");
+		}
+		abstractFileWatcher.registerFileNotificationListener(listener, directory, mask, Math.max(fromSequence, 0));
 		return this;
 	}
 	
+	/**
+	 * Registers tail listener, delivering to it only the bytes appended to the
+	 * files of the given directory. The new files are delivered from their
+	 * start, the files existing before from their size at registration.
+	 * 
+	 * @param listener
+	 *            the listener
+	 * @param directory
+	 *            the dir
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public FileWatcher registerTailListener(TailListener listener, String directory) throws FileNotFoundException
+	{
+		return registerTailListener(listener, directory, SubscriptionMask.ALL);
+	}
+	
+	/**
+	 * Registers tail listener for only the files matching the given mask, e.g.
+	 * by their extension. The offsets are tracked from the creates, modifies
+	 * and deletes, so the mask must subscribe to all of them. Registered again
+	 * for the same directory, the listener is left registered as it is, with
+	 * its first mask, and is not delivered the same bytes twice.
+	 * 
+	 * @param listener
+	 *            the listener
+	 * @param directory
+	 *            the dir
+	 * @param mask
+	 *            the files subscribed to
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 * @throws IllegalArgumentException
+	 *             if the mask excludes the creates, modifies or deletes
+	 */
+	public FileWatcher registerTailListener(TailListener listener, String directory, SubscriptionMask mask)
+			throws FileNotFoundException
+	{
+		if (!mask.isSubscribed(CREATE) || !mask.isSubscribed(MODIFY) || !mask.isSubscribed(DELETE))
+		{
+			throw new IllegalArgumentException("A tail listener must be subscribed to the creates, modifies and "
+					+ "deletes.");
+		}
+		if (listener == null || !StringUtils.isNotBlank(directory))
+		{
+			return this;
+		}
+		final String absolutePath = fileSystem().getAbsolutePath(directory);
+		final Map<String, TailingListener> adapters = tailingListeners.computeIfAbsent(listener,
+				tail -> new ConcurrentHashMap<>());
+		final TailingListener created = new TailingListener(listener, fileSystem());
+		if (adapters.putIfAbsent(absolutePath, created) != null)
+		{
+			// Already registered for the directory.
+			return this;
+		}
+		try
+		{
+			return registerListener(created, directory, mask);
+		}
+		catch (FileNotFoundException e)
+		{
+			adapters.remove(absolutePath, created);
+			tailingListeners.computeIfPresent(listener, (tail, remaining) -> remaining.isEmpty() ? null : remaining);
+			throw e;
+		}
+	}
+	
+	/**
+	 * UnRegisters the tail listener from the given directory, its offsets
+	 * there are forgotten: registered again, it is delivered the bytes
+	 * appended from then on.
+	 * 
+	 * @param listener
+	 *            the listener
+	 * @param dir
+	 *            the dir
+	 */
+	public void unRegisterTailListener(TailListener listener, String dir)
+	{
+		final Map<String, TailingListener> adapters = listener == null ? null : tailingListeners.get(listener);
+		if (adapters == null || !StringUtils.isNotBlank(dir))
+		{
+			return;
+		}
+		final TailingListener tailingListener = adapters.remove(fileSystem().getAbsolutePath(dir));
+		if (tailingListener != null)
+		{
+			unRegisterListener(tailingListener, dir);
+		}
+		tailingListeners.computeIfPresent(listener, (tail, remaining) -> remaining.isEmpty() ? null : remaining);
+	}
+	
+	/**
+	 * Registers a Reactive Streams publisher of the events of the given
+	 * directory, buffering up to 1024 events per subscriber.
+	 * 
+	 * @param directory
+	 *            the dir
+	 * @return the publisher
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public WatchEventPublisher publisher(String directory) throws FileNotFoundException
+	{
+		return publisher(directory, SubscriptionMask.ALL, DEFAULT_PUBLISHER_BUFFER);
+	}
+	
+	/**
+	 * Registers a Reactive Streams publisher of the events of the given
+	 * directory matching the mask. The events a subscriber has not requested
+	 * yet are buffered and coalesced by path; once every subscriber of every
+	 * publisher holds the given number of them, and no other listener is
+	 * registered, the scans are skipped until one requests more, or a bounded
+	 * number of them are skipped in a row. Closing the publisher unregisters
+	 * it.
+	 * 
+	 * @param directory
+	 *            the dir
+	 * @param mask
+	 *            the events published
+	 * @param bufferSize
+	 *            the events buffered per subscriber before it is saturated
+	 * @return the publisher
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public WatchEventPublisher publisher(String directory, SubscriptionMask mask, int bufferSize)
+			throws FileNotFoundException
+	{
+		if (bufferSize <= 0)
+		{
+			throw new IllegalArgumentException("The buffer size must be positive.");
+		}
+		final WatchEventPublisher publisher = new WatchEventPublisher(this, fileSystem().getAbsolutePath(directory),
+				bufferSize);
+		registerListener(publisher.getListener(), directory, mask);
+		publishers.add(publisher);
+		return publisher;
+	}
+	
+	/**
+	 * UnRegisters the publisher, on its close.
+	 * 
+	 * @param publisher
+	 *            the publisher
+	 */
+	void unRegisterPublisher(WatchEventPublisher publisher)
+	{
+		publishers.remove(publisher);
+		unRegisterListener(publisher.getListener(), publisher.getDirectory());
+	}
+	
 	/**
 	 * UnRegisters the file notification listener and will not notify further
 	 * anymore.
@@ -101,7 +457,7 @@ public class FileWatcher
 	 * @param dir
 	 *            the dir
 	 */
-	public synchronized void unRegisterListener(FileNotificationListener listener, String dir)
+	public void unRegisterListener(FileNotificationListener listener, String dir)
 	{
 		abstractFileWatcher.unRegisterFileNotificationListener(listener, dir);
 	}
@@ -109,13 +465,147 @@ public class FileWatcher
 	/**
 	 * Starts the {@link FileWatcher} which monitors the files and directories
 	 * you have registered for notifications.
+	 * 
+	 * @throws IllegalStateException
+	 *             if both {@link #indexed} and {@link #maxResidentEntries}
 	 */
 	public synchronized FileWatcher start()
 	{
+		checkOptions();
 		abstractFileWatcher.start();
 		return this;
 	}
 	
+	/**
+	 * Checks the options are not in conflict.
+	 * 
+	 * @throws IllegalStateException
+	 *             if both {@link #indexed} and {@link #maxResidentEntries}
+	 */
+	private void checkOptions()
+	{
+		if (indexed && maxResidentEntries > 0)
+		{
+			throw new IllegalStateException("The index holds every entry in memory, it cannot be bounded by "
+					+ "maxResidentEntries.");
+		}
+	}
+	
+	/**
+	 * Marks the given file or directory dirty, it is rescanned with everything
+	 * under it at the next scan even if that is not a full scan, e.g. on the
+	 * overflow of an event source or when a directory could not be watched.
+	 * A directory that could not be listed is retried by the watcher, after
+	 * 1, 2, 4 and so on up to 1024 scans while it keeps failing.
+	 * 
+	 * @param path
+	 *            the path
+	 */
+	public void markDirty(String path)
+	{
+		if (StringUtils.isNotBlank(path))
+		{
+			abstractFileWatcher.dirtyPaths.add(fileSystem().getAbsolutePath(path));
+		}
+	}
+	
+	/**
+	 * Gets the readiness of the {@link FileWatcher}, which completes once
+	 * every directory registered so far is indexed and its changes are being
+	 * notified. {@link #start()} returns right away, without waiting for the
+	 * indexing. The changes under a sub directory are notified as soon as
+	 * all of its subtree is indexed, while the rest of a large registered
+	 * directory is still being indexed.
+	 * 
+	 * @return the readiness
+	 */
+	public CompletableFuture<FileWatcher> ready()
+	{
+		return readiness;
+	}
+	
+	/**
+	 * Gets the metrics of the {@link FileWatcher}.
+	 * 
+	 * @return the metrics
+	 */
+	public WatcherMetrics getMetrics()
+	{
+		return metrics;
+	}
+	
+	/**
+	 * Gets the index of the files watched, as of the last completed scan.
+	 * 
+	 * @return the index
+	 * @throws IllegalStateException
+	 *             if the watcher is not {@link #indexed}
+	 */
+	public WatcherIndex getIndex()
+	{
+		if (!indexed)
+		{
+			throw new IllegalStateException("The watcher is not indexed.");
+		}
+		return index;
+	}
+	
+	/**
+	 * Gets the totals of everything under the given directory as of the last
+	 * completed scan, in constant time.
+	 * 
+	 * @param directory
+	 *            the dir
+	 * @return the rollup, null if the directory is not watched
+	 * @throws IllegalStateException
+	 *             if the watcher does not maintain the {@link #directoryRollups}
+	 */
+	public DirectoryRollup getRollup(String directory)
+	{
+		if (!directoryRollups)
+		{
+			throw new IllegalStateException("The watcher does not maintain the directory rollups.");
+		}
+		return rollups.get(fileSystem().getAbsolutePath(directory));
+	}
+	
+	/**
+	 * Sets the thresholds of the totals of the given directory, the listener
+	 * is notified when they are exceeded and when back within them.
+	 * 
+	 * @param directory
+	 *            the dir
+	 * @param maxFiles
+	 *            the maximum files, no limit if 0
+	 * @param maxBytes
+	 *            the maximum bytes, no limit if 0
+	 * @param listener
+	 *            the listener
+	 * @throws IllegalStateException
+	 *             if the watcher does not maintain the {@link #directoryRollups}
+	 */
+	public FileWatcher setRollupThreshold(String directory, long maxFiles, long maxBytes,
+			RollupThresholdListener listener)
+	{
+		if (!directoryRollups)
+		{
+			throw new IllegalStateException("The watcher does not maintain the directory rollups.");
+		}
+		rollups.setThreshold(fileSystem().getAbsolutePath(directory), maxFiles, maxBytes, listener);
+		return this;
+	}
+	
+	/**
+	 * Removes the thresholds of the totals of the given directory.
+	 * 
+	 * @param directory
+	 *            the dir
+	 */
+	public void removeRollupThreshold(String directory)
+	{
+		rollups.removeThreshold(fileSystem().getAbsolutePath(directory));
+	}
+	
 	/**
 	 * Checks if the {@link FileWatcher} is running.
 	 * 
@@ -141,6 +631,25 @@ public class FileWatcher
 		return this;
 	}
 	
+	/**
+	 * Gets the filesystem watched.
+	 * 
+	 * @return the file system
+	 */
+	private WatchedFileSystem fileSystem()
+	{
+		return fileSystem != null ? fileSystem : LocalFileSystem.INSTANCE;
+	}
+	
+	/**
+	 * Runs a single scan pass on the calling thread, used by the benchmarks.
+	 */
+	void scan()
+	{
+		checkOptions();
+		abstractFileWatcher.compute();
+	}
+	
 	/**
 	 * Shutdowns the {@link FileWatcher} and unregisters all the listeners and
 	 * stops the monitoring and notifying. <br>
@@ -151,6 +660,7 @@ public class FileWatcher
 	public void shutdown()
 	{
 		abstractFileWatcher.shutdown();
+		publishers.forEach(WatchEventPublisher::close);
 	}
 	
 	/**
@@ -165,33 +675,87 @@ public class FileWatcher
 	class AbstractFileWatcher extends EnhancedTimerTask
 	{
 		
-		/** The Constant DIRECTORIES_AND_FILES. */
-		protected static final boolean DIRECTORIES_AND_FILES = true;
+		/** The snapshot of the files, keyed by the absolute path. */
+		private final transient Map<String, TrackedFile> filesMonitored;
 		
-		/** The dirs monitored. */
-		private final transient FIFOQueue<FileInfo> dirsMonitored;
+		/**
+		 * The paths of the snapshot in order, so the entries of a subtree are
+		 * found without a walk of the whole snapshot; only kept when the
+		 * scans reconcile dirty subtrees, see {@link #fullScanInterval}.
+		 */
+		private final transient NavigableSet<String> sortedPaths;
 		
-		/** The files. */
-		private final transient FIFOQueue<FileInfo> filesMonitored;
+		/** The modified files, as they were before the modification. */
+		private final transient List<FileInfo> modifiedFiles;
 		
-		/** The modified files. */
-		private final transient FIFOQueue<FileInfo> modifiedFiles;
+		/** The modified files, index aligned with {@link #modifiedFiles}. */
+		private final transient List<FileInfo> modifiedNewFiles;
 		
 		/** The created files. */
-		private final transient FIFOQueue<FileInfo> createdFiles;
+		private final transient List<FileInfo> createdFiles;
 		
 		/** The deleted files. */
-		private final transient FIFOQueue<FileInfo> deletedFiles;
+		private final transient List<FileInfo> deletedFiles;
 		
-		/** The temp files. */
-		private final transient FIFOQueue<FileInfo> tempFiles;
+		/** The path buffer reused across the walk. */
+		private final StringBuilder pathBuffer;
 		
-		/** The all filter. */
-		private final FilenameFilter allFilter;
+		/** The attributes reused across the walk. */
+		private final FileAttributes attributes;
 		
 		private GlobalThread thread;
 
-		private boolean isFirstScan = true;
+		/** The roots walked by the previous scans, new roots are baselined silently. */
+		private final Set<String> scannedRoots;
+
+		/** The registry snapshot {@link #scannedRoots} was taken from. */
+		private Snapshot scannedSnapshot;
+
+		/**
+		 * The roots still registered, only for a scan that follows the
+		 * unregistration of a root; the entries under none of them are
+		 * forgotten rather than deleted.
+		 */
+		private Set<String> watchedRoots;
+
+		/** The baselines in progress, by their root. */
+		private final Map<String, Baseline> baselines;
+
+		/** The pool indexing the baselines, created on the first need. */
+		private ForkJoinPool baselinePool;
+
+		/** The dispatcher, created on the first scan. */
+		private Dispatcher dispatcher;
+
+		/** The registrations notified by the current scan. */
+		private Registration[] registrations;
+
+		/** The current scan generation, entries not seen in it are deleted. */
+		private int generation;
+
+		/** The paths marked dirty since the last scan, by any thread. */
+		private final Queue<String> dirtyPaths;
+
+		/** The directories that could not be listed by the current scan. */
+		private final Set<String> unlistedDirectories;
+
+		/** The directories that could not be listed, retried by backing off. */
+		private final Map<String, ListRetry> listRetries;
+
+		/** The time of the last full scan, in nano seconds. */
+		private long lastFullScanAt;
+
+		/** The scans skipped in a row while backpressured. */
+		private int throttledScans;
+
+		/**
+		 * The entries changed by the current scan, by path, to be applied to
+		 * the index; null if removed.
+		 */
+		private final Map<String, TrackedFile> changedEntries;
+
+		/** The files spilled from the snapshot, created on the first need. */
+		private SpillStore spillStore;
 
 		/**
 		 * Instantiates a new file watcher.
@@ -201,14 +765,20 @@ public class FileWatcher
 		{
 			super(FileWatcher.class.getSimpleName());
 			
-			this.dirsMonitored = new FIFOQueue<>();
-			this.filesMonitored = new FIFOQueue<>();
-			this.createdFiles = new FIFOQueue<>();
-			this.deletedFiles = new FIFOQueue<>();
-			this.modifiedFiles = new FIFOQueue<>();
-			this.tempFiles = new FIFOQueue<>();
-			
-			allFilter = (dir, name) -> DIRECTORIES_AND_FILES;
+			this.scannedRoots = new HashSet<>();
+			this.dirtyPaths = new ConcurrentLinkedQueue<>();
+			this.unlistedDirectories = new HashSet<>();
+			this.listRetries = new HashMap<>();
+			this.changedEntries = new HashMap<>();
+			this.baselines = new HashMap<>();
+			this.filesMonitored = new HashMap<>();
+			this.sortedPaths = new TreeSet<>();
+			this.createdFiles = new ArrayList<>();
+			this.deletedFiles = new ArrayList<>();
+			this.modifiedFiles = new ArrayList<>();
+			this.modifiedNewFiles = new ArrayList<>();
+			this.pathBuffer = new StringBuilder(256);
+			this.attributes = new FileAttributes();
 		}
 		
 		/**
@@ -235,12 +805,32 @@ public class FileWatcher
 			cancel();
 
 			/* Clears all the containers to free up the memory. */
-			dirsMonitored.clear();
+			baselines.values().forEach(Baseline::cancel);
+			baselines.clear();
+			scannedRoots.clear();
+			scannedSnapshot = null;
+			dirtyPaths.clear();
+			listRetries.clear();
 			filesMonitored.clear();
+			sortedPaths.clear();
+			changedEntries.clear();
+			if (spillStore != null)
+			{
+				try
+				{
+					spillStore.clear();
+				}
+				catch (IOException e)
+				{
+					e.printStackTrace();
+				}
+			}
+			index.clear();
+			rollups.clear();
 			modifiedFiles.clear();
+			modifiedNewFiles.clear();
 			createdFiles.clear();
 			deletedFiles.clear();
-			tempFiles.clear();
 		}
 		
 		/**
@@ -252,7 +842,31 @@ public class FileWatcher
 			this.stop();
 
 			/* Stops the actual background thread. */
-			thread.shutdown();
+			if (thread != null)
+			{
+				thread.shutdown();
+			}
+			if (baselinePool != null)
+			{
+				baselinePool.shutdownNow();
+			}
+			if (dispatcher != null)
+			{
+				dispatcher.shutdown();
+			}
+			if (spillStore != null)
+			{
+				try
+				{
+					spillStore.close();
+				}
+				catch (IOException e)
+				{
+					e.printStackTrace();
+				}
+				// A second shutdown finds nothing to clear or close.
+				spillStore = null;
+			}
 		}
 		
 		/**
@@ -263,41 +877,24 @@ public class FileWatcher
 		 *            the listener
 		 * @param directory
 		 *            the dir
+		 * @param mask
+		 *            the events subscribed to
+		 * @param replayFrom
+		 *            the journal sequence to replay from, -1 for none
 		 * @throws FileNotFoundException
 		 *             the file not found exception
 		 */
-		public synchronized void registerFileNotificationListener(FileNotificationListener listener, String directory)
-				throws FileNotFoundException
+		public void registerFileNotificationListener(FileNotificationListener listener, String directory,
+				SubscriptionMask mask, long replayFrom) throws FileNotFoundException
 		{
 			if (StringUtils.isNotBlank(directory))
 			{
-				final FileInfo fileInfo = new FileInfo(directory);
-				boolean subDirectory = Boolean.FALSE;
-				listeners.put(directory, listener);
-				for (FileInfo info : dirsMonitored)
-				{
-					if (info.getAbsolutePath().equals(directory))
-					{
-						// Already directory exists, and under monitoring.!
-						subDirectory = Boolean.TRUE;
-					}
-					else if (directory.startsWith(info.getAbsolutePath()))
-					{
-						// Directory is a sub directory of the exists, and under
-						// monitoring.!
-						subDirectory = Boolean.TRUE;
-					}
-					else if (info.getAbsolutePath().startsWith(directory))
-					{
-						// The directory is a parent or grandpa of exists, so
-						// deleting the subs.
-						dirsMonitored.remove(info);
-					}
-				}
-				if (!subDirectory)
+				final String absolutePath = fileSystem().getAbsolutePath(directory);
+				if (!fileSystem().readAttributes(absolutePath, new FileAttributes()))
 				{
-					dirsMonitored.push(fileInfo);
+					throw new FileNotFoundException("Provided file is an invalid location.");
 				}
+				registry.register(listener, absolutePath, mask, replayFrom);
 			}
 		}
 		
@@ -310,56 +907,184 @@ public class FileWatcher
 		 * @param dir
 		 *            the dir
 		 */
-		public synchronized void unRegisterFileNotificationListener(FileNotificationListener listener, String dir)
+		public void unRegisterFileNotificationListener(FileNotificationListener listener, String dir)
 		{
 			if (StringUtils.isNotBlank(dir) && listener != null)
 			{
-				listeners.remove(dir);
+				registry.unRegister(listener, fileSystem().getAbsolutePath(dir));
 			}
 		}
 		
 		/**
 		 * Update all the files based on the status.
+		 * 
+		 * @param registrations
+		 *            the registrations to notify
+		 */
+		protected void update(Registration[] registrations)
+		{
+			if (journal != null)
+			{
+				for (int i = 0; i < modifiedNewFiles.size(); i++)
+				{
+					modifiedNewFiles.set(i, journal(MODIFY, modifiedNewFiles.get(i)));
+				}
+				for (int i = 0; i < deletedFiles.size(); i++)
+				{
+					deletedFiles.set(i, journal(DELETE, deletedFiles.get(i)));
+				}
+				for (int i = 0; i < createdFiles.size(); i++)
+				{
+					createdFiles.set(i, journal(CREATE, createdFiles.get(i)));
+				}
+				try
+				{
+					journal.commit();
+				}
+				catch (IOException e)
+				{
+					metrics.onJournalFailure();
+				}
+			}
+			for (int i = 0; i < modifiedFiles.size(); i++)
+			{
+				updateOnModify(registrations, modifiedFiles.get(i), modifiedNewFiles.get(i));
+			}
+			final boolean aggregating = isAggregating(registrations);
+			final Subtrees deletedSubtrees = aggregating ? Subtrees.of(deletedFiles) : Subtrees.NONE;
+			for (SubtreeInfo subtree : deletedSubtrees.getSubtrees())
+			{
+				updateOnSubtree(registrations, DELETE, subtree);
+			}
+			for (int i = 0; i < deletedFiles.size(); i++)
+			{
+				updateOnDelete(registrations, deletedFiles.get(i), deletedSubtrees.topOf(i));
+			}
+			final Subtrees createdSubtrees = aggregating ? Subtrees.of(createdFiles) : Subtrees.NONE;
+			for (SubtreeInfo subtree : createdSubtrees.getSubtrees())
+			{
+				updateOnSubtree(registrations, CREATE, subtree);
+			}
+			for (int i = 0; i < createdFiles.size(); i++)
+			{
+				updateOnCreate(registrations, createdFiles.get(i), createdSubtrees.topOf(i));
+			}
+		}
+		
+		/**
+		 * Checks if any of the registrations aggregates the subtrees.
+		 * 
+		 * @param registrations
+		 *            the registrations
+		 * @return true, if aggregating
+		 */
+		private boolean isAggregating(Registration[] registrations)
+		{
+			for (Registration registration : registrations)
+			{
+				if (registration.mask.isAggregateSubtrees())
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * Update on subtree, notifying the registrations that aggregate it of
+		 * the entries they accept. Unless the lanes are per directory, the
+		 * subtree is delivered in order with every lane, as its entries are
+		 * on the lanes of their own paths for the other events.
+		 * 
+		 * @param registrations
+		 *            the registrations to notify
+		 * @param type
+		 *            the type, create or delete
+		 * @param subtree
+		 *            the subtree
 		 */
-		protected void update()
+		private void updateOnSubtree(Registration[] registrations, WatchEventType type, SubtreeInfo subtree)
 		{
-			for (FileInfo oldFileInfo : modifiedFiles)
+			final FileInfo directory = subtree.getDirectory();
+			for (Registration registration : registrations)
 			{
-				updateOnModify(oldFileInfo, filesMonitored.get(filesMonitored.indexOf(oldFileInfo)));
+				if (registration.aggregates(type, directory))
+				{
+					final FileNotificationListener listener = registration.listener;
+					final SubtreeInfo accepted = accepted(registration, type, subtree);
+					final Runnable notification = type == CREATE ? () -> listener.onCreateSubtree(accepted)
+							: () -> listener.onDeleteSubtree(accepted);
+					if (dispatchOrderedByDirectory)
+					{
+						dispatcher.dispatch(registration.directory, notification);
+					}
+					else
+					{
+						dispatcher.dispatchToAll(notification);
+					}
+				}
 			}
-			for (FileInfo fileInfo : deletedFiles)
+		}
+		
+		/**
+		 * Gets the subtree with only the entries the registration accepts.
+		 * 
+		 * @param registration
+		 *            the registration
+		 * @param type
+		 *            the type
+		 * @param subtree
+		 *            the subtree
+		 * @return the subtree accepted, the same if all of it, else filtering
+		 *         the entries as they are iterated
+		 */
+		private SubtreeInfo accepted(Registration registration, WatchEventType type, SubtreeInfo subtree)
+		{
+			final SubscriptionMask mask = registration.mask;
+			int entryCount = 0;
+			for (FileInfo fileInfo : subtree.getEntries())
 			{
-				updateOnDelete(fileInfo);
+				if (mask.matches(type, fileInfo))
+				{
+					entryCount++;
+				}
 			}
-			for (FileInfo fileInfo : createdFiles)
+			if (entryCount == subtree.getEntryCount())
 			{
-				updateOnCreate(fileInfo);
+				return subtree;
 			}
+			final Iterable<FileInfo> entries = subtree.getEntries();
+			return new SubtreeInfo(subtree.getDirectory(), () -> StreamSupport.stream(entries.spliterator(), false)
+					.filter(fileInfo -> mask.matches(type, fileInfo)).iterator(), entryCount);
 		}
 		
 		/**
 		 * Update on create.
 		 * 
+		 * @param registrations
+		 *            the registrations to notify
 		 * @param fileInfo
 		 *            the file info
+		 * @param subtree
+		 *            the top directory of the tree created with it, null if
+		 *            none
 		 */
-		private void updateOnCreate(FileInfo fileInfo)
+		private void updateOnCreate(Registration[] registrations, FileInfo fileInfo, FileInfo subtree)
 		{
-			for (Entry<String, FileNotificationListener> listener : listeners.entrySet())
+			metrics.onEvent();
+			for (Registration registration : registrations)
 			{
-				synchronized (listeners)
+				// To restrict the parent file notifications to child registrar
+				if (registration.accepts(CREATE, fileInfo) && !registration.aggregates(CREATE, subtree))
 				{
-					// To restrict the parent file notifications to child registrar
-					if (fileInfo.getAbsolutePath().contains(listener.getKey()))
+					final FileNotificationListener listener = registration.listener;
+					if (fileInfo.isDirectory())
 					{
-						if (fileInfo.isDirectory())
-						{
-							listener.getValue().onCreateDirectory(fileInfo);
-						}
-						else
-						{
-							listener.getValue().onCreateFile(fileInfo);
-						}
+						dispatcher.dispatch(keyOf(registration, fileInfo), () -> listener.onCreateDirectory(fileInfo));
+					}
+					else
+					{
+						dispatcher.dispatch(keyOf(registration, fileInfo), () -> listener.onCreateFile(fileInfo));
 					}
 				}
 			}
@@ -368,26 +1093,30 @@ public class FileWatcher
 		/**
 		 * Update on delete.
 		 * 
+		 * @param registrations
+		 *            the registrations to notify
 		 * @param fileInfo
 		 *            the file info
+		 * @param subtree
+		 *            the top directory of the tree deleted with it, null if
+		 *            none
 		 */
-		private void updateOnDelete(FileInfo fileInfo)
+		private void updateOnDelete(Registration[] registrations, FileInfo fileInfo, FileInfo subtree)
 		{
-			for (Entry<String, FileNotificationListener> listener : listeners.entrySet())
+			metrics.onEvent();
+			for (Registration registration : registrations)
 			{
-				synchronized (listeners)
+				// To restrict the parent file notifications to child registrar
+				if (registration.accepts(DELETE, fileInfo) && !registration.aggregates(DELETE, subtree))
 				{
-					// To restrict the parent file notifications to child registrar
-					if (fileInfo.getAbsolutePath().contains(listener.getKey()))
+					final FileNotificationListener listener = registration.listener;
+					if (fileInfo.isDirectory())
 					{
-						if (fileInfo.isDirectory())
-						{
-							listener.getValue().onDeleteDirectory(fileInfo);
-						}
-						else
-						{
-							listener.getValue().onDeleteFile(fileInfo);
-						}
+						dispatcher.dispatch(keyOf(registration, fileInfo), () -> listener.onDeleteDirectory(fileInfo));
+					}
+					else
+					{
+						dispatcher.dispatch(keyOf(registration, fileInfo), () -> listener.onDeleteFile(fileInfo));
 					}
 				}
 			}
@@ -396,33 +1125,139 @@ public class FileWatcher
 		/**
 		 * Update on modify.
 		 * 
+		 * @param registrations
+		 *            the registrations to notify
 		 * @param oldFileInfo
 		 *            the old file info
 		 * @param newFileInfo
 		 *            the new file info
 		 */
-		private void updateOnModify(FileInfo oldFileInfo, FileInfo newFileInfo)
+		private void updateOnModify(Registration[] registrations, FileInfo oldFileInfo, FileInfo newFileInfo)
 		{
-			for (Entry<String, FileNotificationListener> listener : listeners.entrySet())
+			metrics.onEvent();
+			for (Registration registration : registrations)
 			{
-				synchronized (listeners)
+				// To restrict the parent file notifications to child registrar
+				if (registration.accepts(MODIFY, newFileInfo))
 				{
-					// To restrict the parent file notifications to child registrar
-					if (oldFileInfo.getAbsolutePath().contains(listener.getKey()))
+					final FileNotificationListener listener = registration.listener;
+					if (oldFileInfo.isDirectory())
 					{
-						if (oldFileInfo.isDirectory())
-						{
-							listener.getValue().onModifyDirectory(oldFileInfo, newFileInfo);
-						}
-						else
-						{
-							listener.getValue().onModifyFile(oldFileInfo, newFileInfo);
-						}
+						dispatcher.dispatch(keyOf(registration, newFileInfo),
+								() -> listener.onModifyDirectory(oldFileInfo, newFileInfo));
+					}
+					else
+					{
+						dispatcher.dispatch(keyOf(registration, newFileInfo),
+								() -> listener.onModifyFile(oldFileInfo, newFileInfo));
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Appends the event to the journal.
+		 * 
+		 * @param type
+		 *            the type
+		 * @param fileInfo
+		 *            the file info
+		 * @return a copy of the file info with the sequence of the event, the
+		 *         file info itself if not journaled
+		 */
+		private FileInfo journal(WatchEventType type, FileInfo fileInfo)
+		{
+			if (journal == null)
+			{
+				return fileInfo;
+			}
+			try
+			{
+				return new FileInfo(fileInfo, journal.append(type, fileInfo));
+			}
+			catch (IOException e)
+			{
+				// Notified all the same, the failures are counted rather than
+				// logged once per event.
+				metrics.onJournalFailure();
+				return fileInfo;
+			}
+		}
+		
+		/**
+		 * Replays the journal to the registrations that asked for it, once.
+		 * 
+		 * @param registrations
+		 *            the registrations
+		 */
+		private void replay(Registration[] registrations)
+		{
+			for (Registration registration : registrations)
+			{
+				final long replayFrom = registration.replayFrom.getAndSet(-1);
+				if (replayFrom >= 0 && journal != null)
+				{
+					try
+					{
+						journal.replay(replayFrom, record -> replay(registration, record));
+					}
+					catch (IOException e)
+					{
+						e.printStackTrace();
 					}
 				}
 			}
 		}
 		
+		/**
+		 * Replays the journaled event to the registration, if accepted.
+		 * 
+		 * @param registration
+		 *            the registration
+		 * @param record
+		 *            the record
+		 */
+		private void replay(Registration registration, JournalRecord record)
+		{
+			final FileInfo fileInfo = record.toFileInfo();
+			if (!registration.accepts(record.getType(), fileInfo))
+			{
+				return;
+			}
+			final FileNotificationListener listener = registration.listener;
+			final String key = keyOf(registration, fileInfo);
+			switch (record.getType())
+			{
+				case CREATE:
+					dispatcher.dispatch(key, fileInfo.isDirectory() ? () -> listener.onCreateDirectory(fileInfo)
+							: () -> listener.onCreateFile(fileInfo));
+					break;
+				case MODIFY:
+					dispatcher.dispatch(key, fileInfo.isDirectory() ? () -> listener.onModifyDirectory(fileInfo, fileInfo)
+							: () -> listener.onModifyFile(fileInfo, fileInfo));
+					break;
+				default:
+					dispatcher.dispatch(key, fileInfo.isDirectory() ? () -> listener.onDeleteDirectory(fileInfo)
+							: () -> listener.onDeleteFile(fileInfo));
+					break;
+			}
+		}
+		
+		/**
+		 * Gets the dispatch key of the notification, the notifications of the
+		 * same key are delivered in order.
+		 * 
+		 * @param registration
+		 *            the registration
+		 * @param fileInfo
+		 *            the file info
+		 * @return the key
+		 */
+		private String keyOf(Registration registration, FileInfo fileInfo)
+		{
+			return dispatchOrderedByDirectory ? registration.directory : fileInfo.getAbsolutePath();
+		}
+		
 		/*
 		 * (non-Javadoc)
 		 * 
@@ -431,96 +1266,1041 @@ public class FileWatcher
 		@Override
 		public void compute()
 		{
-			for (FileInfo fileInfo : dirsMonitored)
+			if (dispatcher == null)
 			{
-				loadFiles(new File(fileInfo.getAbsolutePath()));
+				dispatcher = new Dispatcher(dispatchThreads, FileWatcher.class.getSimpleName());
 			}
-			deletedFiles.addAll(filesMonitored);
-			filesMonitored.clear();
-			filesMonitored.addAll(tempFiles);
-			// filesMonitored.addAll(modifiedFiles);
-			filesMonitored.addAll(createdFiles);
+			final Snapshot snapshot = registry.snapshot();
+			if (throttledScans < MAX_THROTTLED_SCANS && isBackpressured(snapshot.registrations))
+			{
+				// The changes meanwhile are picked up by the next scan.
+				throttledScans++;
+				metrics.onThrottledScan();
+				return;
+			}
+			throttledScans = 0;
+			final long startedAt = System.nanoTime();
+			registrations = snapshot.registrations;
+			replay(registrations);
+			generation++;
+			unlistedDirectories.clear();
+			if (!listRetries.isEmpty())
+			{
+				retryUnlistedDirectories();
+			}
+			// A change of the roots is always verified by a full scan.
+			final Set<String> dirtySubtrees = snapshot != scannedSnapshot ? null : dirtySubtrees(startedAt);
+			if (dirtySubtrees == null)
+			{
+				dirtyPaths.clear();
+				lastFullScanAt = startedAt;
+				metrics.onFullScan();
+			}
+			else
+			{
+				metrics.onReconcile(dirtySubtrees.size());
+			}
+			watchedRoots = null;
+			if (snapshot != scannedSnapshot)
+			{
+				final List<String> roots = Arrays.asList(snapshot.roots);
+				if (scannedSnapshot != null && !roots.containsAll(Arrays.asList(scannedSnapshot.roots)))
+				{
+					watchedRoots = new HashSet<>(roots);
+				}
+				retainRoots(roots);
+				scannedSnapshot = snapshot;
+			}
+			for (String root : snapshot.roots)
+			{
+				// Unless notified, a root is indexed by a baseline first, and
+				// is scanned from the scan after the baseline is done.
+				if (dirtySubtrees != null && scannedRoots.contains(root))
+				{
+					reconcile(root, dirtySubtrees);
+				}
+				else if (initialScanNotificationRequired || scannedRoots.contains(root))
+				{
+					loadFiles(root);
+					scannedRoots.add(root);
+				}
+				else
+				{
+					final Baseline baseline = baselineOf(root);
+					// Its ready directories are scanned meanwhile, the batches
+					// taken by this scan are merged silently.
+					for (String directory : baseline.updateReady())
+					{
+						if (dirtySubtrees != null)
+						{
+							reconcile(directory, dirtySubtrees);
+						}
+						else
+						{
+							loadFiles(directory);
+						}
+					}
+					if (awaitBaseline(baseline))
+					{
+						scannedRoots.add(root);
+					}
+				}
+			}
+			if (dirtySubtrees == null || !dirtySubtrees.isEmpty())
+			{
+				removeUnseenFiles(dirtySubtrees);
+			}
+			// The baselines merged by this scan are not pending anymore.
+			baselines.keySet().removeIf(scannedRoots::contains);
 
-			if (initialScanNotificationRequired || !isFirstScan) {
-				update();
+			update(snapshot.registrations);
+			if (baselines.isEmpty() && !readiness.isDone())
+			{
+				readiness.complete(FileWatcher.this);
 			}
-			isFirstScan = false;
 
-			/*
-			 * System.out.println("deleted: " + deletedFiles);
-			 * System.out.println("created: " + createdFiles);
-			 * System.out.println("modified: " + modifiedFiles);
-			 */
 			deletedFiles.clear();
 			createdFiles.clear();
 			modifiedFiles.clear();
-			tempFiles.clear();
+			modifiedNewFiles.clear();
+			if (indexed)
+			{
+				index.apply(changedEntries);
+				changedEntries.clear();
+			}
+			if (maxResidentEntries > 0 && filesMonitored.size() > maxResidentEntries)
+			{
+				evict();
+			}
+			metrics.onSnapshot(filesMonitored.size(), spillStore != null ? spillStore.getEntries() : 0);
+			if (directoryRollups)
+			{
+				rollups.publish((threshold, rollup) -> {
+					final boolean exceeded = threshold.exceeded;
+					dispatcher.dispatch(rollup.getDirectory(), () -> threshold.listener.onThreshold(rollup, exceeded));
+				});
+			}
+			metrics.onScan(System.nanoTime() - startedAt, interval);
 		}
 		
 		/**
-		 * Scan and load files from the given parent directory.
+		 * Checks if every subscriber of every publisher holds a full buffer,
+		 * and every registration is a publisher's, the scan is then skipped.
 		 * 
-		 * @param directory
-		 *            the directory
+		 * @param registrations
+		 *            the registrations
+		 * @return true, if backpressured
 		 */
-		protected void loadFiles(File directory)
+		private boolean isBackpressured(Registration[] registrations)
 		{
-			// To add directories to the notified list.
-			if (directory.isDirectory())
+			boolean subscribed = false;
+			for (WatchEventPublisher publisher : publishers)
 			{
-				final File[] files = directory.listFiles(allFilter);
-				if (nonNull(files))
+				if (publisher.hasSubscribers())
 				{
-					for (final File file : files)
+					if (!publisher.isSaturated())
 					{
-						loadFiles(file);
+						return false;
 					}
+					subscribed = true;
+				}
+			}
+			if (!subscribed)
+			{
+				return false;
+			}
+			for (Registration registration : registrations)
+			{
+				if (!isPublisher(registration.listener))
+				{
+					// Another listener still wants the changes on time.
+					return false;
 				}
-
 			}
-			// To add leaf files to the notified list.
-			addToMonitoredFiles(directory.getAbsolutePath());
+			return true;
 		}
 		
 		/**
-		 * Adds the to monitored files.
+		 * Checks if the listener is the one of a publisher.
 		 * 
-		 * @param absolutePath
-		 *            the absolute path
+		 * @param listener
+		 *            the listener
+		 * @return true, if a publisher's
 		 */
-		private void addToMonitoredFiles(String absolutePath)
+		private boolean isPublisher(FileNotificationListener listener)
 		{
-			try
+			for (WatchEventPublisher publisher : publishers)
 			{
-				final FileInfo newFileInfo = new FileInfo(absolutePath);
-				if (!newFileInfo.isBackup())
+				if (publisher.getListener() == listener)
 				{
-					final int index = filesMonitored.indexOf(newFileInfo);
-					if (index != -1)
-					{
-						final FileInfo existingFileInfo = filesMonitored.get(index);
-						if (existingFileInfo.lastModified() == newFileInfo.lastModified())
-						{
-							tempFiles.push(existingFileInfo);
-						}
-						else
-						{
-							modifiedFiles.push(existingFileInfo);
-							tempFiles.push(newFileInfo);
-						}
-						filesMonitored.remove(existingFileInfo);
-					}
-					else
-					{
-						createdFiles.push(newFileInfo);
-					}
+					return true;
 				}
 			}
-			catch (FileNotFoundException e)
+			return false;
+		}
+		
+		/**
+		 * Gets the subtrees to be rescanned by the current scan, none of them
+		 * under another, or null if it is a full scan.
+		 * 
+		 * @param now
+		 *            the time of the scan, in nano seconds
+		 * @return the dirty subtrees, null for a full scan
+		 */
+		private Set<String> dirtySubtrees(long now)
+		{
+			if (fullScanInterval <= 0 || now - lastFullScanAt >= TimeUnit.MILLISECONDS.toNanos(fullScanInterval))
+			{
+				return null;
+			}
+			final Set<String> paths = new HashSet<>();
+			for (String path = dirtyPaths.poll(); path != null; path = dirtyPaths.poll())
 			{
-				e.printStackTrace();
+				paths.add(path);
+				if (paths.size() > MAX_DIRTY_SUBTREES)
+				{
+					// Cheaper to verify everything than so many subtrees.
+					return null;
+				}
+			}
+			final Set<String> subtrees = new HashSet<>();
+			for (String path : paths)
+			{
+				if (!isUnder(paths, path, false))
+				{
+					subtrees.add(path);
+				}
+			}
+			return subtrees;
+		}
+		
+		/**
+		 * Marks dirty the directories that could not be listed and are due to
+		 * be retried; a full scan retries all of them anyway.
+		 */
+		private void retryUnlistedDirectories()
+		{
+			for (Map.Entry<String, ListRetry> retry : listRetries.entrySet())
+			{
+				if (retry.getValue().dueAt - generation <= 0)
+				{
+					dirtyPaths.add(retry.getKey());
+				}
+			}
+		}
+		
+		/**
+		 * Rescans the dirty subtrees of the given root, the root itself if it
+		 * lies under one of them.
+		 * 
+		 * @param root
+		 *            the root
+		 * @param dirtySubtrees
+		 *            the dirty subtrees
+		 */
+		private void reconcile(String root, Set<String> dirtySubtrees)
+		{
+			if (isUnder(dirtySubtrees, root, true))
+			{
+				loadFiles(root);
+				return;
+			}
+			for (String subtree : dirtySubtrees)
+			{
+				if (ListenerRegistry.covers(root, subtree))
+				{
+					loadFiles(subtree);
+				}
 			}
 		}
+		
+		/**
+		 * Checks if the given path is one of the given directories or lies
+		 * under one of them, looking up each of its ancestors.
+		 * 
+		 * @param directories
+		 *            the directories
+		 * @param path
+		 *            the path
+		 * @param inclusive
+		 *            whether the path itself counts
+		 * @return true, if under
+		 */
+		private boolean isUnder(Set<String> directories, String path, boolean inclusive)
+		{
+			if (inclusive && directories.contains(path))
+			{
+				return true;
+			}
+			for (int i = path.lastIndexOf(File.separatorChar); i > 0; i = path.lastIndexOf(File.separatorChar, i - 1))
+			{
+				if (directories.contains(path.substring(0, i)))
+				{
+					return true;
+				}
+			}
+			// The filesystem root keeps its separator, e.g. / or C:\.
+			final int first = path.indexOf(File.separatorChar);
+			return first >= 0 && first + 1 < path.length() && directories.contains(path.substring(0, first + 1));
+		}
+		
+		/**
+		 * Forgets the roots not registered anymore, cancelling their
+		 * baselines. A root scanned under a root registered since goes on
+		 * being scanned until the new root is baselined, and a root ready in a
+		 * baseline cancelled is scanned from now on.
+		 * 
+		 * @param roots
+		 *            the roots registered
+		 */
+		private void retainRoots(List<String> roots)
+		{
+			scannedRoots.removeIf(scanned -> !roots.contains(scanned)
+					&& (initialScanNotificationRequired || !isUnderBaseline(roots, scanned)));
+			baselines.values().removeIf(baseline -> {
+				if (roots.contains(baseline.getRoot()))
+				{
+					return false;
+				}
+				baseline.cancel();
+				for (String directory : baseline.getReady())
+				{
+					if (roots.contains(directory))
+					{
+						scannedRoots.add(directory);
+					}
+				}
+				return true;
+			});
+		}
+		
+		/**
+		 * Checks if the given root scanned lies under a root registered and
+		 * not scanned yet, which is to be baselined.
+		 * 
+		 * @param roots
+		 *            the roots registered
+		 * @param scanned
+		 *            the root scanned
+		 * @return true, if under a baseline
+		 */
+		private boolean isUnderBaseline(List<String> roots, String scanned)
+		{
+			for (String root : roots)
+			{
+				if (!scannedRoots.contains(root) && ListenerRegistry.covers(root, scanned))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * Gets the baseline of the given root, starting it if not already. The
+		 * roots scanned under it are taken over by the baseline, they are not
+		 * walked again and are ready from the start.
+		 * 
+		 * @param root
+		 *            the root
+		 * @return the baseline
+		 */
+		private Baseline baselineOf(String root)
+		{
+			Baseline baseline = baselines.get(root);
+			if (baseline == null)
+			{
+				if (baselinePool == null)
+				{
+					baselinePool = new ForkJoinPool(baselineParallelism > 0 ? baselineParallelism
+							: Runtime.getRuntime().availableProcessors());
+				}
+				final Set<String> scanned = new HashSet<>();
+				for (String scannedRoot : scannedRoots)
+				{
+					if (ListenerRegistry.covers(root, scannedRoot))
+					{
+						scanned.add(scannedRoot);
+					}
+				}
+				scannedRoots.removeAll(scanned);
+				baseline = new Baseline(root, fileSystem(), baselinePool, maxResidentEntries, spillDirectory(),
+						scanned);
+				baselines.put(root, baseline);
+			}
+			return baseline;
+		}
+		
+		/**
+		 * Merges the batches of the baseline indexed so far in to the
+		 * snapshot. Within a {@link #maxResidentEntries} budget, the files of
+		 * each are spilled once over it, so neither the baseline nor the
+		 * snapshot holds the whole tree. The baseline stays pending until the
+		 * end of the scan merging its last batch, so the entries merged by the
+		 * scans before are not taken as unseen.
+		 * 
+		 * @param baseline
+		 *            the baseline
+		 * @return true, if the baseline is done and merged
+		 */
+		private boolean awaitBaseline(Baseline baseline)
+		{
+			// Every batch is queued once done, so all of them are merged.
+			final boolean done = baseline.isDone();
+			for (Baseline.Batch batch = baseline.poll(); batch != null; batch = baseline.poll())
+			{
+				merge(batch);
+			}
+			if (!done)
+			{
+				reportProgress(baseline.getRoot(), baseline.getIndexed(), false);
+				return false;
+			}
+			baseline.close();
+			reportProgress(baseline.getRoot(), baseline.getIndexed(), true);
+			return true;
+		}
+		
+		/**
+		 * Merges a batch of a baseline in to the snapshot, spilling its files
+		 * if over the budget.
+		 * 
+		 * @param batch
+		 *            the batch
+		 */
+		private void merge(Baseline.Batch batch)
+		{
+			final List<TrackedFile> files = new ArrayList<>(batch.entries.size());
+			for (TrackedFile trackedFile : batch.entries)
+			{
+				if (trackedFile.directory && isSpilled())
+				{
+					// Already watched under another root, merged in to.
+					pageIn(trackedFile.path);
+				}
+				final TrackedFile existingFile = track(trackedFile);
+				final TrackedFile merged = existingFile != null ? existingFile : trackedFile;
+				onChange(trackedFile.path, merged);
+				if (existingFile == null && directoryRollups)
+				{
+					rollups.add(trackedFile);
+				}
+				merged.generation = generation;
+				if (!merged.directory)
+				{
+					files.add(merged);
+				}
+			}
+			if (maxResidentEntries > 0 && filesMonitored.size() > maxResidentEntries)
+			{
+				spill(batch.directory, files);
+			}
+		}
+		
+		/**
+		 * Reports the baseline progress to the listener, if any.
+		 * 
+		 * @param root
+		 *            the root
+		 * @param indexed
+		 *            the indexed
+		 * @param done
+		 *            the done
+		 */
+		private void reportProgress(String root, long indexed, boolean done)
+		{
+			if (baselineProgressListener != null)
+			{
+				baselineProgressListener.onProgress(root, indexed, done);
+			}
+		}
+		
+		/**
+		 * Checks if the given path lies under a root whose baseline is still
+		 * in progress, and under none of its ready directories; such a path
+		 * is not scanned yet.
+		 * 
+		 * @param path
+		 *            the path
+		 * @return true, if pending
+		 */
+		private boolean isPendingBaseline(String path)
+		{
+			for (Baseline baseline : baselines.values())
+			{
+				if (ListenerRegistry.covers(baseline.getRoot(), path) && !isUnder(baseline.getReady(), path, true))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * Scan and load files from the given path.
+		 * 
+		 * @param path
+		 *            the absolute path
+		 */
+		private void loadFiles(String path)
+		{
+			// A file rescanned alone is compared with its spilled entry.
+			final int parent = path.lastIndexOf(File.separatorChar);
+			if (parent > 0 && isSpilled())
+			{
+				pageIn(path.substring(0, parent));
+			}
+			pathBuffer.setLength(0);
+			pathBuffer.append(path);
+			loadFiles(pathBuffer, false);
+		}
+		
+		/**
+		 * Scan and load files from the given path, the buffer is restored to
+		 * the given path on return.
+		 * 
+		 * @param path
+		 *            the path buffer
+		 * @param listed
+		 *            whether just listed in its directory, rather than a
+		 *            root or a dirty path that may be long gone
+		 */
+		protected void loadFiles(StringBuilder path, boolean listed)
+		{
+			final String absolutePath = path.toString();
+			final WatchedFileSystem fileSystem = fileSystem();
+			if (!fileSystem.readAttributes(absolutePath, attributes))
+			{
+				// Vanished since listed, it is deleted unless seen elsewhere.
+				if (listed)
+				{
+					metrics.onVanished();
+				}
+				return;
+			}
+			final boolean directory = attributes.isDirectory();
+			if (isSpilled())
+			{
+				// Even if not a directory anymore, its files are deleted.
+				pageIn(absolutePath);
+			}
+			// The directory goes before its children, so a new directory is
+			// notified before its files.
+			addToMonitoredFiles(absolutePath, attributes);
+			if (directory)
+			{
+				final String[] names = fileSystem.list(absolutePath);
+				if (nonNull(names))
+				{
+					if (!listRetries.isEmpty())
+					{
+						listRetries.remove(absolutePath);
+					}
+					final int length = path.length();
+					final boolean separated = length > 0 && path.charAt(length - 1) == File.separatorChar;
+					for (final String name : names)
+					{
+						if (!separated)
+						{
+							path.append(File.separatorChar);
+						}
+						loadFiles(path.append(name), true);
+						path.setLength(length);
+					}
+					if (maxResidentEntries > 0 && filesMonitored.size() > maxResidentEntries)
+					{
+						spill(path, names);
+					}
+				}
+				else
+				{
+					// Its entries are kept as they are and it is retried
+					// after twice as many scans each time it fails again.
+					unlistedDirectories.add(absolutePath);
+					listRetries.computeIfAbsent(absolutePath, unlisted -> new ListRetry()).onFailure(generation);
+				}
+			}
+		}
+		
+		/**
+		 * Adds the to monitored files, comparing against the existing snapshot
+		 * entry in place.
+		 * 
+		 * @param absolutePath
+		 *            the absolute path
+		 * @param attributes
+		 *            the attributes just read
+		 */
+		private void addToMonitoredFiles(String absolutePath, FileAttributes attributes)
+		{
+			if (FileInfo.isBackup(absolutePath))
+			{
+				return;
+			}
+			final long lastModified = attributes.lastModified();
+			final long size = attributes.getSize();
+			TrackedFile trackedFile = filesMonitored.get(absolutePath);
+			if (trackedFile == null)
+			{
+				final FileInfo newFileInfo = fileSystem().readFileInfo(absolutePath);
+				if (newFileInfo == null)
+				{
+					// Vanished since its attributes were read, never created.
+					metrics.onVanished();
+					return;
+				}
+				onCreate(newFileInfo);
+				trackedFile = new TrackedFile(newFileInfo);
+				track(trackedFile);
+				onChange(absolutePath, trackedFile);
+				if (directoryRollups)
+				{
+					rollups.add(trackedFile);
+				}
+			}
+			else if (trackedFile.isChanged(lastModified, size))
+			{
+				final FileInfo newFileInfo = fileSystem().readFileInfo(absolutePath);
+				if (newFileInfo == null)
+				{
+					// Vanished since its attributes were read, left unseen so
+					// it is deleted.
+					metrics.onVanished();
+					return;
+				}
+				onModify(trackedFile.toFileInfo(), newFileInfo);
+				final long oldSize = trackedFile.size;
+				final boolean wasDirectory = trackedFile.directory;
+				trackedFile.update(newFileInfo);
+				onChange(absolutePath, trackedFile);
+				if (directoryRollups)
+				{
+					rollups.modify(trackedFile, oldSize, wasDirectory);
+				}
+			}
+			trackedFile.generation = generation;
+		}
+		
+		/**
+		 * Adds the entry to the snapshot, unless one is there already.
+		 * 
+		 * @param trackedFile
+		 *            the tracked file
+		 * @return the entry already there, null if added
+		 */
+		private TrackedFile track(TrackedFile trackedFile)
+		{
+			final TrackedFile existingFile = filesMonitored.putIfAbsent(trackedFile.path, trackedFile);
+			if (existingFile == null && fullScanInterval > 0)
+			{
+				sortedPaths.add(trackedFile.path);
+			}
+			return existingFile;
+		}
+		
+		/**
+		 * Removes the entry of the given path from the snapshot.
+		 * 
+		 * @param path
+		 *            the absolute path
+		 */
+		private void untrack(String path)
+		{
+			filesMonitored.remove(path);
+			if (fullScanInterval > 0)
+			{
+				sortedPaths.remove(path);
+			}
+		}
+		
+		/**
+		 * Records the change of the snapshot entry, to be applied to the index.
+		 * 
+		 * @param path
+		 *            the absolute path
+		 * @param trackedFile
+		 *            the entry, null if removed
+		 */
+		private void onChange(String path, TrackedFile trackedFile)
+		{
+			if (indexed)
+			{
+				changedEntries.put(path, trackedFile);
+			}
+		}
+		
+		/**
+		 * Checks if any files of the snapshot are spilled.
+		 * 
+		 * @return true, if spilled
+		 */
+		private boolean isSpilled()
+		{
+			return spillStore != null && !spillStore.isEmpty();
+		}
+		
+		/**
+		 * Reads the spilled files of the directory back in to the snapshot, to
+		 * be compared by the scan; they are unseen until scanned.
+		 * 
+		 * @param directory
+		 *            the directory
+		 */
+		private void pageIn(String directory)
+		{
+			if (!spillStore.contains(directory))
+			{
+				return;
+			}
+			try
+			{
+				for (TrackedFile trackedFile : spillStore.read(directory))
+				{
+					trackedFile.generation = generation - 1;
+					track(trackedFile);
+				}
+				metrics.onPageIn();
+			}
+			catch (IOException e)
+			{
+				// The files lost are notified as created again.
+				e.printStackTrace();
+			}
+		}
+		
+		/**
+		 * Spills the files of the directory just scanned, the directories
+		 * under it stay in the snapshot.
+		 * 
+		 * @param path
+		 *            the path buffer of the directory, restored on return
+		 * @param names
+		 *            the names listed in the directory
+		 */
+		private void spill(StringBuilder path, String[] names)
+		{
+			final String directory = path.toString();
+			final int length = path.length();
+			final boolean separated = length > 0 && path.charAt(length - 1) == File.separatorChar;
+			final List<TrackedFile> files = new ArrayList<>(names.length);
+			for (final String name : names)
+			{
+				if (!separated)
+				{
+					path.append(File.separatorChar);
+				}
+				final TrackedFile trackedFile = filesMonitored.get(path.append(name).toString());
+				path.setLength(length);
+				if (trackedFile != null && !trackedFile.directory && trackedFile.generation == generation)
+				{
+					files.add(trackedFile);
+				}
+			}
+			spill(directory, files);
+		}
+		
+		/**
+		 * Spills the given files of the directory, removing them from the
+		 * snapshot once written. Only the files of a directory in the
+		 * snapshot are spilled, as they are found again from it.
+		 * 
+		 * @param directory
+		 *            the directory
+		 * @param files
+		 *            the files, directly in the directory
+		 * @return true, if spilled
+		 */
+		private boolean spill(String directory, List<TrackedFile> files)
+		{
+			final TrackedFile trackedDirectory = filesMonitored.get(directory);
+			if (files.isEmpty() || trackedDirectory == null || !trackedDirectory.directory)
+			{
+				return false;
+			}
+			try
+			{
+				if (spillStore == null)
+				{
+					spillStore = new SpillStore(spillDirectory());
+				}
+				spillStore.write(directory, files);
+			}
+			catch (IOException e)
+			{
+				// Kept in memory instead.
+				e.printStackTrace();
+				return false;
+			}
+			for (TrackedFile trackedFile : files)
+			{
+				untrack(trackedFile.path);
+			}
+			return true;
+		}
+		
+		/**
+		 * Gets the directory the snapshot spills to.
+		 * 
+		 * @return the spill directory
+		 */
+		private Path spillDirectory()
+		{
+			return spillDirectory != null ? spillDirectory : Paths.get(System.getProperty("java.io.tmpdir"),
+					"file-watcher");
+		}
+		
+		/**
+		 * Spills the files of the coldest directories, the ones rescanned
+		 * least recently, until the snapshot is back within its budget, e.g.
+		 * after a baseline is merged or the rescan of a dirty file.
+		 */
+		private void evict()
+		{
+			final Map<String, List<TrackedFile>> byDirectory = new HashMap<>();
+			for (TrackedFile trackedFile : filesMonitored.values())
+			{
+				final int parent = trackedFile.path.lastIndexOf(File.separatorChar);
+				if (!trackedFile.directory && parent > 0)
+				{
+					byDirectory.computeIfAbsent(trackedFile.path.substring(0, parent), directory -> new ArrayList<>())
+							.add(trackedFile);
+				}
+			}
+			final List<Map.Entry<String, List<TrackedFile>>> directories = new ArrayList<>(byDirectory.entrySet());
+			directories.sort(Comparator.comparingInt(directory -> lastSeen(directory.getValue())));
+			for (Map.Entry<String, List<TrackedFile>> directory : directories)
+			{
+				if (filesMonitored.size() <= maxResidentEntries)
+				{
+					return;
+				}
+				spill(directory.getKey(), directory.getValue());
+			}
+		}
+		
+		/**
+		 * Gets the generation the files were last seen in, relative to the
+		 * current one so it sorts across an overflow.
+		 * 
+		 * @param files
+		 *            the files
+		 * @return the scans since the most recent of them was seen, negated
+		 */
+		private int lastSeen(List<TrackedFile> files)
+		{
+			int lastSeen = Integer.MIN_VALUE;
+			for (TrackedFile trackedFile : files)
+			{
+				lastSeen = Math.max(lastSeen, trackedFile.generation - generation);
+			}
+			return lastSeen;
+		}
+		
+		/**
+		 * Notifies the created file right away when streaming, otherwise
+		 * collects it to be notified at the end of the scan.
+		 * 
+		 * @param fileInfo
+		 *            the file info
+		 */
+		private void onCreate(FileInfo fileInfo)
+		{
+			if (streamingNotification)
+			{
+				updateOnCreate(registrations, journal(CREATE, fileInfo), null);
+			}
+			else
+			{
+				createdFiles.add(fileInfo);
+			}
+		}
+		
+		/**
+		 * Notifies the modified file right away when streaming, otherwise
+		 * collects it to be notified at the end of the scan.
+		 * 
+		 * @param oldFileInfo
+		 *            the old file info
+		 * @param newFileInfo
+		 *            the new file info
+		 */
+		private void onModify(FileInfo oldFileInfo, FileInfo newFileInfo)
+		{
+			if (streamingNotification)
+			{
+				updateOnModify(registrations, oldFileInfo, journal(MODIFY, newFileInfo));
+			}
+			else
+			{
+				modifiedFiles.add(oldFileInfo);
+				modifiedNewFiles.add(newFileInfo);
+			}
+		}
+		
+		/**
+		 * Removes the files not seen in the current generation from the
+		 * snapshot, they are deleted or their root is not monitored anymore.
+		 * Only the files of the subtrees rescanned are considered, looked up
+		 * by their range of the sorted paths, and never the ones under a
+		 * directory that could not be listed.
+		 * 
+		 * @param rescanned
+		 *            the subtrees rescanned, null if all of them
+		 */
+		private void removeUnseenFiles(Set<String> rescanned)
+		{
+			if (rescanned == null)
+			{
+				final Iterator<TrackedFile> iterator = filesMonitored.values().iterator();
+				while (iterator.hasNext())
+				{
+					final TrackedFile trackedFile = iterator.next();
+					if (isUnseen(trackedFile))
+					{
+						iterator.remove();
+						if (fullScanInterval > 0)
+						{
+							sortedPaths.remove(trackedFile.path);
+						}
+						onRemove(trackedFile);
+					}
+				}
+				return;
+			}
+			for (String subtree : rescanned)
+			{
+				final TrackedFile top = filesMonitored.get(subtree);
+				if (top != null && isUnseen(top))
+				{
+					untrack(subtree);
+					onRemove(top);
+				}
+				final String prefix = subtree.endsWith(File.separator) ? subtree : subtree + File.separator;
+				final String end = prefix.substring(0, prefix.length() - 1) + (char) (File.separatorChar + 1);
+				final Iterator<String> iterator = sortedPaths.subSet(prefix, end).iterator();
+				while (iterator.hasNext())
+				{
+					final TrackedFile trackedFile = filesMonitored.get(iterator.next());
+					if (trackedFile != null && isUnseen(trackedFile))
+					{
+						iterator.remove();
+						filesMonitored.remove(trackedFile.path);
+						onRemove(trackedFile);
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Checks if the entry was left unseen by the current scan, and is not
+		 * under a directory that could not be listed or a baseline still in
+		 * progress.
+		 * 
+		 * @param trackedFile
+		 *            the tracked file
+		 * @return true, if unseen
+		 */
+		private boolean isUnseen(TrackedFile trackedFile)
+		{
+			return trackedFile.generation != generation
+					&& (unlistedDirectories.isEmpty() || !isUnder(unlistedDirectories, trackedFile.path, false))
+					&& (baselines.isEmpty() || !isPendingBaseline(trackedFile.path));
+		}
+		
+		/**
+		 * Removes the entry left unseen, along with the files spilled if a
+		 * directory.
+		 * 
+		 * @param trackedFile
+		 *            the tracked file
+		 */
+		private void onRemove(TrackedFile trackedFile)
+		{
+			// Not deleted if only its root is not watched anymore.
+			final boolean deleted = watchedRoots == null || isUnder(watchedRoots, trackedFile.path, true);
+			onRemove(trackedFile, deleted);
+			if (trackedFile.directory)
+			{
+				if (!listRetries.isEmpty())
+				{
+					listRetries.remove(trackedFile.path);
+				}
+				if (isSpilled() && spillStore.contains(trackedFile.path))
+				{
+					removeSpilledFiles(trackedFile.path, deleted);
+				}
+			}
+		}
+		
+		/**
+		 * Removes the spilled files of the directory removed, along with it.
+		 * 
+		 * @param directory
+		 *            the directory
+		 * @param deleted
+		 *            whether they are deleted, rather than not watched anymore
+		 */
+		private void removeSpilledFiles(String directory, boolean deleted)
+		{
+			try
+			{
+				for (TrackedFile trackedFile : spillStore.read(directory))
+				{
+					onRemove(trackedFile, deleted);
+				}
+				metrics.onPageIn();
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+		
+		/**
+		 * Records the entry removed from the snapshot, and collects it to be
+		 * notified and journaled if deleted.
+		 * 
+		 * @param trackedFile
+		 *            the tracked file
+		 * @param deleted
+		 *            whether deleted, rather than not watched anymore
+		 */
+		private void onRemove(TrackedFile trackedFile, boolean deleted)
+		{
+			onChange(trackedFile.path, null);
+			if (directoryRollups)
+			{
+				rollups.remove(trackedFile);
+			}
+			if (deleted)
+			{
+				deletedFiles.add(trackedFile.toFileInfo());
+			}
+		}
+	}
+	
+	/**
+	 * The retries of a directory that could not be listed.
+	 */
+	private static final class ListRetry
+	{
+		
+		/** The failures in a row. */
+		int failures;
+		
+		/** The scan generation it is retried by. */
+		int dueAt;
+		
+		/**
+		 * Backs off once more after a failure in the given generation.
+		 * 
+		 * @param generation
+		 *            the generation
+		 */
+		void onFailure(int generation)
+		{
+			dueAt = generation + (1 << Math.min(failures++, MAX_LIST_BACKOFF));
+		}
 	}
 	
 	/**
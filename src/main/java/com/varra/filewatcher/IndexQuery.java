@@ -0,0 +1,156 @@
+/*
+ * FileWatcher - IndexQuery.java, Oct 18, 2026 7:46:03 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.classification.InterfaceAudience;
+import com.varra.classification.InterfaceStability;
+import lombok.Builder;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+
+/**
+ * The criteria of a query on the {@link WatcherIndex}, an absent criterion
+ * matches everything:
+ *
+ * <pre>
+ * IndexQuery.builder().directory("/data/tenants/acme").glob("**&#47;*.pdf").minSize(1).build()
+ * </pre>
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class IndexQuery
+{
+
+	/** The query that matches every entry. */
+	public static final IndexQuery ALL = builder().build();
+
+	/** The directory, the entries are the ones under it. */
+	private final String directory;
+
+	/** The glob of the paths relative to the directory, null if any. */
+	private final PathMatcher glob;
+
+	/** Whether the files are excluded. */
+	private final boolean excludeFiles;
+
+	/** Whether the directories are excluded. */
+	private final boolean excludeDirectories;
+
+	/** The minimum size. */
+	private final long minSize;
+
+	/** The maximum size. */
+	private final long maxSize;
+
+	/** The earliest last modified. */
+	private final long modifiedFrom;
+
+	/** The latest last modified. */
+	private final long modifiedTo;
+
+	/**
+	 * Instantiates a new index query.
+	 *
+	 * @param directory
+	 *            the directory, everything if null; a relative one is
+	 *            resolved like the registered directories
+	 * @param glob
+	 *            the glob of the paths relative to the directory, e.g.
+	 *            <code>*.pdf</code> for its own files or <code>**&#47;*.pdf</code>
+	 *            for the ones of its sub directories
+	 * @param excludeFiles
+	 *            whether the files are excluded
+	 * @param excludeDirectories
+	 *            whether the directories are excluded
+	 * @param minSize
+	 *            the minimum size
+	 * @param maxSize
+	 *            the maximum size, no limit if 0
+	 * @param modifiedFrom
+	 *            the earliest last modified, inclusive
+	 * @param modifiedTo
+	 *            the latest last modified, inclusive, no limit if 0
+	 */
+	@Builder
+	private IndexQuery(String directory, String glob, boolean excludeFiles, boolean excludeDirectories, long minSize,
+			long maxSize, long modifiedFrom, long modifiedTo)
+	{
+		this.directory = directory;
+		this.glob = glob == null ? null : FileSystems.getDefault().getPathMatcher("glob:" + glob);
+		this.excludeFiles = excludeFiles;
+		this.excludeDirectories = excludeDirectories;
+		this.minSize = minSize;
+		this.maxSize = maxSize > 0 ? maxSize : Long.MAX_VALUE;
+		this.modifiedFrom = modifiedFrom;
+		this.modifiedTo = modifiedTo > 0 ? modifiedTo : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Gets the directory.
+	 *
+	 * @return the directory, null if everything
+	 */
+	String getDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Checks if the entry matches, the entry lies under the directory.
+	 *
+	 * @param directory
+	 *            the directory resolved to the absolute one, null if
+	 *            everything
+	 * @param path
+	 *            the absolute path
+	 * @param size
+	 *            the size
+	 * @param lastModified
+	 *            the last modified
+	 * @param isDirectory
+	 *            whether the entry is a directory
+	 * @return true, if matches
+	 */
+	boolean matches(String directory, String path, long size, long lastModified, boolean isDirectory)
+	{
+		if (isDirectory ? excludeDirectories : excludeFiles)
+		{
+			return false;
+		}
+		if (size < minSize || size > maxSize || lastModified < modifiedFrom || lastModified > modifiedTo)
+		{
+			return false;
+		}
+		return glob == null || glob.matches(Paths.get(relativize(directory, path)));
+	}
+
+	/**
+	 * Gets the path relative to the directory.
+	 *
+	 * @param directory
+	 *            the absolute directory, null if everything
+	 * @param path
+	 *            the path
+	 * @return the relative path
+	 */
+	private static String relativize(String directory, String path)
+	{
+		if (directory == null)
+		{
+			return path;
+		}
+		final int start = directory.length();
+		return start < path.length() && path.charAt(start) == File.separatorChar ? path.substring(start + 1)
+				: path.substring(start);
+	}
+}
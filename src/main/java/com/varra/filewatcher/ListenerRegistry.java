@@ -0,0 +1,247 @@
+/*
+ * FileWatcher - ListenerRegistry.java, Oct 18, 2026 11:20:48 AM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.filewatcher.info.FileInfo;
+import com.varra.filewatcher.listener.FileNotificationListener;
+import com.varra.filewatcher.listener.SubscriptionMask;
+import com.varra.filewatcher.listener.WatchEventType;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The copy-on-write registry of the listeners and the root directories to be
+ * scanned. Every change publishes a new immutable {@link Snapshot}, so the
+ * scan and dispatch read the registrations without any locking and never see
+ * a half applied change; only the writers are serialized.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ *
+ */
+final class ListenerRegistry
+{
+
+	/** The current snapshot. */
+	private volatile Snapshot snapshot = new Snapshot(new Registration[0]);
+
+	/**
+	 * Gets the current snapshot of the registrations.
+	 *
+	 * @return the snapshot
+	 */
+	Snapshot snapshot()
+	{
+		return snapshot;
+	}
+
+	/**
+	 * Registers the listener for the given directory, a directory may have
+	 * any number of listeners.
+	 *
+	 * @param listener
+	 *            the listener
+	 * @param directory
+	 *            the absolute directory
+	 * @param mask
+	 *            the events subscribed to
+	 * @param replayFrom
+	 *            the journal sequence to replay from, -1 for none
+	 */
+	synchronized void register(FileNotificationListener listener, String directory, SubscriptionMask mask,
+			long replayFrom)
+	{
+		final Registration[] current = snapshot.registrations;
+		final Registration[] registrations = Arrays.copyOf(current, current.length + 1);
+		registrations[current.length] = new Registration(directory, listener, mask, replayFrom);
+		snapshot = new Snapshot(registrations);
+	}
+
+	/**
+	 * UnRegisters the listener from the given directory.
+	 *
+	 * @param listener
+	 *            the listener
+	 * @param directory
+	 *            the absolute directory
+	 */
+	synchronized void unRegister(FileNotificationListener listener, String directory)
+	{
+		final List<Registration> registrations = new ArrayList<>(Arrays.asList(snapshot.registrations));
+		if (registrations.removeIf(registration -> registration.listener == listener
+				&& registration.directory.equals(directory)))
+		{
+			snapshot = new Snapshot(registrations.toArray(new Registration[0]));
+		}
+	}
+
+	/**
+	 * Checks if the given path is the directory itself or lies under it.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @param path
+	 *            the path
+	 * @return true, if covered
+	 */
+	static boolean covers(String directory, String path)
+	{
+		final int length = directory.length();
+		return path.startsWith(directory)
+				&& (path.length() == length || path.charAt(length) == File.separatorChar
+						|| (length > 0 && directory.charAt(length - 1) == File.separatorChar));
+	}
+
+	/**
+	 * A single listener registered for a directory.
+	 */
+	static final class Registration
+	{
+
+		/** The absolute directory. */
+		final String directory;
+
+		/** The listener. */
+		final FileNotificationListener listener;
+
+		/** The events subscribed to. */
+		final SubscriptionMask mask;
+
+		/** The journal sequence still to be replayed from, -1 once replayed. */
+		final AtomicLong replayFrom;
+
+		/**
+		 * Instantiates a new registration.
+		 *
+		 * @param directory
+		 *            the directory
+		 * @param listener
+		 *            the listener
+		 * @param mask
+		 *            the mask
+		 * @param replayFrom
+		 *            the journal sequence to replay from, -1 for none
+		 */
+		Registration(String directory, FileNotificationListener listener, SubscriptionMask mask, long replayFrom)
+		{
+			this.directory = directory;
+			this.listener = listener;
+			this.mask = mask;
+			this.replayFrom = new AtomicLong(replayFrom);
+		}
+
+		/**
+		 * Checks if the given path is of interest to this registration.
+		 *
+		 * @param path
+		 *            the path
+		 * @return true, if covered
+		 */
+		boolean covers(String path)
+		{
+			return ListenerRegistry.covers(directory, path);
+		}
+
+		/**
+		 * Checks if the event is of interest to this registration, both the
+		 * directory and the subscription mask.
+		 *
+		 * @param type
+		 *            the type
+		 * @param fileInfo
+		 *            the file info
+		 * @return true, if accepted
+		 */
+		boolean accepts(WatchEventType type, FileInfo fileInfo)
+		{
+			return covers(fileInfo.getAbsolutePath()) && mask.matches(type, fileInfo);
+		}
+
+		/**
+		 * Checks if the tree under the given top directory is notified to
+		 * this registration as one subtree event, instead of its entries;
+		 * only if the top directory itself is accepted.
+		 *
+		 * @param type
+		 *            the type, create or delete
+		 * @param top
+		 *            the top directory of the tree, null if none
+		 * @return true, if aggregated
+		 */
+		boolean aggregates(WatchEventType type, FileInfo top)
+		{
+			return top != null && mask.isAggregateSubtrees() && accepts(type, top);
+		}
+	}
+
+	/**
+	 * An immutable view of the registrations and the roots derived from them,
+	 * the arrays must never be modified.
+	 */
+	static final class Snapshot
+	{
+
+		/** The registrations, in the order of registration. */
+		final Registration[] registrations;
+
+		/** The roots to be scanned, no root lies under another. */
+		final String[] roots;
+
+		/**
+		 * Instantiates a new snapshot.
+		 *
+		 * @param registrations
+		 *            the registrations
+		 */
+		private Snapshot(Registration[] registrations)
+		{
+			this.registrations = registrations;
+			this.roots = rootsOf(registrations);
+		}
+
+		/**
+		 * Derives the roots, dropping the directories that are the same as or
+		 * a sub directory of another registered directory.
+		 *
+		 * @param registrations
+		 *            the registrations
+		 * @return the roots
+		 */
+		private static String[] rootsOf(Registration[] registrations)
+		{
+			final String[] directories = new String[registrations.length];
+			for (int i = 0; i < registrations.length; i++)
+			{
+				directories[i] = registrations[i].directory;
+			}
+			// Shorter first, so a parent is always seen before its children.
+			Arrays.sort(directories, (first, second) -> Integer.compare(first.length(), second.length()));
+			final List<String> roots = new ArrayList<>();
+			for (String directory : directories)
+			{
+				boolean covered = false;
+				for (String root : roots)
+				{
+					if (covers(root, directory))
+					{
+						covered = true;
+						break;
+					}
+				}
+				if (!covered)
+				{
+					roots.add(directory);
+				}
+			}
+			return roots.toArray(new String[0]);
+		}
+	}
+}
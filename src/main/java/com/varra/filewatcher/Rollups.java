@@ -0,0 +1,348 @@
+/*
+ * FileWatcher - Rollups.java, Oct 18, 2026 8:44:27 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.filewatcher.listener.RollupThresholdListener;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * The totals of every watched directory, maintained from the changes of the
+ * snapshot instead of walking the trees: a change is added to or subtracted
+ * from each of the directories above it. The totals are updated on the scan
+ * thread, and published as immutable {@link DirectoryRollup}s at the end of
+ * each scan, only for the directories changed.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ *
+ */
+final class Rollups
+{
+
+	/** The running totals, by directory, only for the scan thread. */
+	private final Map<String, Totals> totals = new HashMap<>();
+
+	/** The directories changed by the current scan. */
+	private final Set<String> changed = new HashSet<>();
+
+	/** The totals published, by directory. */
+	private final Map<String, DirectoryRollup> published = new ConcurrentHashMap<>();
+
+	/** The thresholds, by directory. */
+	private final Map<String, Threshold> thresholds = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the totals of the directory as of the last completed scan.
+	 *
+	 * @param directory
+	 *            the absolute directory
+	 * @return the rollup, null if not watched
+	 */
+	DirectoryRollup get(String directory)
+	{
+		return published.get(directory);
+	}
+
+	/**
+	 * Sets the thresholds of the directory, evaluated at the end of every
+	 * scan that changes the directory.
+	 *
+	 * @param directory
+	 *            the absolute directory
+	 * @param maxFiles
+	 *            the maximum files, no limit if 0
+	 * @param maxBytes
+	 *            the maximum bytes, no limit if 0
+	 * @param listener
+	 *            the listener
+	 */
+	void setThreshold(String directory, long maxFiles, long maxBytes, RollupThresholdListener listener)
+	{
+		thresholds.put(directory, new Threshold(maxFiles, maxBytes, listener));
+		// Evaluated at the next scan, even if the directory does not change.
+		synchronized (changed)
+		{
+			changed.add(directory);
+		}
+	}
+
+	/**
+	 * Removes the thresholds of the directory.
+	 *
+	 * @param directory
+	 *            the absolute directory
+	 */
+	void removeThreshold(String directory)
+	{
+		thresholds.remove(directory);
+	}
+
+	/**
+	 * Adds the entry of the snapshot.
+	 *
+	 * @param trackedFile
+	 *            the tracked file
+	 */
+	void add(TrackedFile trackedFile)
+	{
+		if (trackedFile.directory)
+		{
+			totals.putIfAbsent(trackedFile.path, new Totals());
+			mark(trackedFile.path);
+			propagate(trackedFile.path, 0, 1, 0, trackedFile.lastModified);
+		}
+		else
+		{
+			propagate(trackedFile.path, 1, 0, trackedFile.size, trackedFile.lastModified);
+		}
+	}
+
+	/**
+	 * Subtracts the entry removed from the snapshot, a directory with
+	 * everything still counted under it.
+	 *
+	 * @param trackedFile
+	 *            the tracked file
+	 */
+	void remove(TrackedFile trackedFile)
+	{
+		remove(trackedFile.path, trackedFile.size, trackedFile.directory);
+	}
+
+	/**
+	 * Applies the modification of the entry of the snapshot.
+	 *
+	 * @param trackedFile
+	 *            the tracked file, already updated
+	 * @param oldSize
+	 *            the size before
+	 * @param wasDirectory
+	 *            whether it was a directory before
+	 */
+	void modify(TrackedFile trackedFile, long oldSize, boolean wasDirectory)
+	{
+		if (wasDirectory != trackedFile.directory)
+		{
+			remove(trackedFile.path, oldSize, wasDirectory);
+			add(trackedFile);
+		}
+		else
+		{
+			propagate(trackedFile.path, 0, 0, trackedFile.size - oldSize, trackedFile.lastModified);
+		}
+	}
+
+	/**
+	 * Publishes the totals of the directories changed by the scan, and
+	 * notifies the thresholds crossed.
+	 *
+	 * @param notifier
+	 *            invoked for each threshold crossed, with the rollup
+	 */
+	void publish(BiConsumer<Threshold, DirectoryRollup> notifier)
+	{
+		synchronized (changed)
+		{
+			for (String directory : changed)
+			{
+				final Totals total = totals.get(directory);
+				final DirectoryRollup rollup = total == null ? null
+						: new DirectoryRollup(directory, total.files, total.directories, total.bytes,
+								total.newestModified);
+				if (rollup == null)
+				{
+					published.remove(directory);
+				}
+				else
+				{
+					published.put(directory, rollup);
+				}
+				final Threshold threshold = thresholds.get(directory);
+				if (threshold != null && rollup != null && threshold.cross(rollup))
+				{
+					notifier.accept(threshold, rollup);
+				}
+			}
+			changed.clear();
+		}
+	}
+
+	/**
+	 * Forgets all the totals.
+	 */
+	void clear()
+	{
+		synchronized (changed)
+		{
+			totals.clear();
+			changed.clear();
+			published.clear();
+		}
+	}
+
+	/**
+	 * Subtracts the entry, a directory with everything still counted under
+	 * it.
+	 *
+	 * @param path
+	 *            the path
+	 * @param size
+	 *            the size
+	 * @param directory
+	 *            whether it is a directory
+	 */
+	private void remove(String path, long size, boolean directory)
+	{
+		if (directory)
+		{
+			final Totals total = totals.remove(path);
+			mark(path);
+			if (total != null)
+			{
+				propagate(path, -total.files, -1 - total.directories, -total.bytes, 0);
+			}
+			else
+			{
+				propagate(path, 0, -1, 0, 0);
+			}
+		}
+		else
+		{
+			propagate(path, -1, 0, -size, 0);
+		}
+	}
+
+	/**
+	 * Adds the given amounts to each of the directories above the path, up to
+	 * the first one not watched.
+	 *
+	 * @param path
+	 *            the path
+	 * @param files
+	 *            the files
+	 * @param directories
+	 *            the directories
+	 * @param bytes
+	 *            the bytes
+	 * @param lastModified
+	 *            the last modified
+	 */
+	private void propagate(String path, long files, long directories, long bytes, long lastModified)
+	{
+		for (int i = path.lastIndexOf(File.separatorChar); i >= 0; i = i > 0 ? path.lastIndexOf(
+				File.separatorChar, i - 1) : -1)
+		{
+			// The filesystem root keeps its separator.
+			final String parent = path.substring(0, i > 0 ? i : 1);
+			final Totals total = totals.get(parent);
+			if (total == null)
+			{
+				return;
+			}
+			total.files += files;
+			total.directories += directories;
+			total.bytes += bytes;
+			total.newestModified = Math.max(total.newestModified, lastModified);
+			mark(parent);
+		}
+	}
+
+	/**
+	 * Marks the directory changed by the current scan.
+	 *
+	 * @param directory
+	 *            the directory
+	 */
+	private void mark(String directory)
+	{
+		synchronized (changed)
+		{
+			changed.add(directory);
+		}
+	}
+
+	/**
+	 * The running totals of a directory.
+	 */
+	private static final class Totals
+	{
+
+		/** The files. */
+		long files;
+
+		/** The directories. */
+		long directories;
+
+		/** The bytes. */
+		long bytes;
+
+		/** The newest modified. */
+		long newestModified;
+	}
+
+	/**
+	 * The thresholds of a directory, and whether they are exceeded.
+	 */
+	static final class Threshold
+	{
+
+		/** The maximum files, no limit if 0. */
+		private final long maxFiles;
+
+		/** The maximum bytes, no limit if 0. */
+		private final long maxBytes;
+
+		/** The listener. */
+		final RollupThresholdListener listener;
+
+		/** Whether the thresholds are exceeded. */
+		boolean exceeded;
+
+		/**
+		 * Instantiates a new threshold.
+		 *
+		 * @param maxFiles
+		 *            the max files
+		 * @param maxBytes
+		 *            the max bytes
+		 * @param listener
+		 *            the listener
+		 */
+		Threshold(long maxFiles, long maxBytes, RollupThresholdListener listener)
+		{
+			this.maxFiles = maxFiles;
+			this.maxBytes = maxBytes;
+			this.listener = listener;
+		}
+
+		/**
+		 * Evaluates the thresholds against the rollup.
+		 *
+		 * @param rollup
+		 *            the rollup
+		 * @return true, if crossed in either way since last evaluated
+		 */
+		boolean cross(DirectoryRollup rollup)
+		{
+			final boolean exceeds = (maxFiles > 0 && rollup.getFiles() > maxFiles)
+					|| (maxBytes > 0 && rollup.getBytes() > maxBytes);
+			if (exceeds == exceeded)
+			{
+				return false;
+			}
+			exceeded = exceeds;
+			return true;
+		}
+	}
+}
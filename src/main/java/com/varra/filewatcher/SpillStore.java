@@ -0,0 +1,300 @@
+/*
+ * FileWatcher - SpillStore.java, Oct 18, 2026 9:27:08 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The files of the snapshot spilled to disk, kept per directory: the files
+ * of a directory are written together as one record of a local file, and
+ * read back together when the directory is scanned again. Only the offset
+ * of the record of each directory is held in memory. The space of the
+ * records read back is reclaimed by compacting the file once it is mostly
+ * garbage.
+ * <p>
+ * Only the directories' own files are spilled, the directories stay in the
+ * snapshot so the scan can find their spilled files.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ *
+ */
+final class SpillStore implements Closeable
+{
+
+	/** The garbage tolerated before compacting. */
+	private static final long MIN_GARBAGE = 16 * 1024 * 1024;
+
+	/** The directory of the spill file. */
+	private final Path directory;
+
+	/** The records, by their directory. */
+	private final Map<String, Extent> extents;
+
+	/** The spill file. */
+	private FileChannel channel;
+
+	/** The end of the spill file. */
+	private long end;
+
+	/** The bytes of the records still spilled. */
+	private long live;
+
+	/** The files spilled. */
+	private long entries;
+
+	/**
+	 * Instantiates a new spill store.
+	 *
+	 * @param directory
+	 *            the directory of the spill file
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	SpillStore(Path directory) throws IOException
+	{
+		this.directory = Files.createDirectories(directory);
+		this.extents = new HashMap<>();
+		this.channel = open();
+	}
+
+	/**
+	 * Checks if nothing is spilled.
+	 *
+	 * @return true, if is empty
+	 */
+	boolean isEmpty()
+	{
+		return extents.isEmpty();
+	}
+
+	/**
+	 * Checks if the files of the directory are spilled.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @return true, if spilled
+	 */
+	boolean contains(String directory)
+	{
+		return extents.containsKey(directory);
+	}
+
+	/**
+	 * Gets the number of files spilled.
+	 *
+	 * @return the entries
+	 */
+	long getEntries()
+	{
+		return entries;
+	}
+
+	/**
+	 * Spills the files of the directory, along with any already spilled.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @param files
+	 *            the files, directly in the directory
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void write(String directory, List<TrackedFile> files) throws IOException
+	{
+		final List<TrackedFile> all = extents.containsKey(directory) ? read(directory) : new ArrayList<>();
+		all.addAll(files);
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(all.size() * 32);
+		final DataOutputStream out = new DataOutputStream(bytes);
+		final int start = prefix(directory).length();
+		out.writeInt(all.size());
+		for (TrackedFile trackedFile : all)
+		{
+			out.writeUTF(trackedFile.path.substring(start));
+			out.writeLong(trackedFile.lastModified);
+			out.writeLong(trackedFile.size);
+		}
+		out.flush();
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+		final long offset = end;
+		while (buffer.hasRemaining())
+		{
+			end += channel.write(buffer, end);
+		}
+		extents.put(directory, new Extent(offset, (int) (end - offset), all.size()));
+		live += end - offset;
+		entries += all.size();
+	}
+
+	/**
+	 * Reads the files of the directory back, they are not spilled anymore
+	 * once read. A failed read leaves them spilled, to be read again.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @return the files, empty if none spilled
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	List<TrackedFile> read(String directory) throws IOException
+	{
+		final Extent extent = extents.get(directory);
+		if (extent == null)
+		{
+			return new ArrayList<>();
+		}
+		final ByteBuffer buffer = ByteBuffer.allocate(extent.length);
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, extent.offset + buffer.position()) < 0)
+			{
+				throw new IOException("Truncated spill record of " + directory);
+			}
+		}
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+		final String prefix = prefix(directory);
+		final int count = in.readInt();
+		final List<TrackedFile> files = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			final String path = prefix + in.readUTF();
+			files.add(new TrackedFile(path, in.readLong(), in.readLong(), false));
+		}
+		extents.remove(directory);
+		live -= extent.length;
+		entries -= extent.count;
+		if (end - live > MIN_GARBAGE && end - live > live)
+		{
+			compact();
+		}
+		return files;
+	}
+
+	/**
+	 * Forgets everything spilled.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void clear() throws IOException
+	{
+		extents.clear();
+		channel.truncate(0);
+		end = 0;
+		live = 0;
+		entries = 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		extents.clear();
+		channel.close();
+	}
+
+	/**
+	 * Rewrites the records still spilled to a new file, dropping the ones
+	 * read back.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void compact() throws IOException
+	{
+		final FileChannel compacted = open();
+		long position = 0;
+		for (Extent extent : extents.values())
+		{
+			long copied = 0;
+			while (copied < extent.length)
+			{
+				copied += channel.transferTo(extent.offset + copied, extent.length - copied, compacted);
+			}
+			extent.offset = position;
+			position += extent.length;
+		}
+		channel.close();
+		channel = compacted;
+		end = position;
+	}
+
+	/**
+	 * Opens a new spill file, deleted once closed.
+	 *
+	 * @return the channel
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private FileChannel open() throws IOException
+	{
+		return FileChannel.open(Files.createTempFile(directory, "snapshot", ".spill"), StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+	}
+
+	/**
+	 * Gets the prefix of the paths of the files of the directory.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @return the prefix
+	 */
+	private static String prefix(String directory)
+	{
+		return directory.endsWith(File.separator) ? directory : directory + File.separator;
+	}
+
+	/**
+	 * The place of the record of a directory in the spill file.
+	 */
+	private static final class Extent
+	{
+
+		/** The offset. */
+		long offset;
+
+		/** The length. */
+		final int length;
+
+		/** The number of files. */
+		final int count;
+
+		/**
+		 * Instantiates a new extent.
+		 *
+		 * @param offset
+		 *            the offset
+		 * @param length
+		 *            the length
+		 * @param count
+		 *            the count
+		 */
+		Extent(long offset, int length, int count)
+		{
+			this.offset = offset;
+			this.length = length;
+			this.count = count;
+		}
+	}
+}
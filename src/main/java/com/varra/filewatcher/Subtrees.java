@@ -0,0 +1,188 @@
+/*
+ * FileWatcher - Subtrees.java, Oct 18, 2026 7:18:51 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.filewatcher.info.FileInfo;
+import com.varra.filewatcher.info.SubtreeInfo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups the creates or the deletes of a scan in to the whole directory
+ * trees that appeared or disappeared: every directory created (deleted)
+ * with no created (deleted) parent is the top of such a tree, and every
+ * entry under it was created (deleted) too. The entries of a tree are the
+ * range of its paths in a copy of the events sorted by path, none is
+ * gathered per tree.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ *
+ */
+final class Subtrees
+{
+
+	/** No subtrees. */
+	static final Subtrees NONE = new Subtrees(null, Collections.emptyMap(), Collections.emptyList());
+
+	/** The top directory of the tree of each event, index aligned. */
+	private final String[] tops;
+
+	/** The top directories, by their path. */
+	private final Map<String, FileInfo> topDirectories;
+
+	/** The subtrees. */
+	private final List<SubtreeInfo> subtrees;
+
+	/**
+	 * Instantiates new subtrees.
+	 *
+	 * @param tops
+	 *            the top directory of each event, null if none
+	 * @param topDirectories
+	 *            the top directories, by their path
+	 * @param subtrees
+	 *            the subtrees
+	 */
+	private Subtrees(String[] tops, Map<String, FileInfo> topDirectories, List<SubtreeInfo> subtrees)
+	{
+		this.tops = tops;
+		this.topDirectories = topDirectories;
+		this.subtrees = subtrees;
+	}
+
+	/**
+	 * Groups the given events, all of the same type.
+	 *
+	 * @param events
+	 *            the events
+	 * @return the subtrees
+	 */
+	static Subtrees of(List<FileInfo> events)
+	{
+		final Set<String> directories = new HashSet<>();
+		for (int i = 0; i < events.size(); i++)
+		{
+			if (events.get(i).isDirectory())
+			{
+				directories.add(events.get(i).getAbsolutePath());
+			}
+		}
+		if (directories.isEmpty())
+		{
+			return NONE;
+		}
+		final String[] tops = new String[events.size()];
+		final Map<String, FileInfo> topDirectories = new LinkedHashMap<>();
+		for (int i = 0; i < events.size(); i++)
+		{
+			final FileInfo fileInfo = events.get(i);
+			final String path = fileInfo.getAbsolutePath();
+			tops[i] = topOf(directories, path, fileInfo.isDirectory());
+			if (path.equals(tops[i]))
+			{
+				topDirectories.put(path, fileInfo);
+			}
+		}
+		final FileInfo[] sorted = events.toArray(new FileInfo[events.size()]);
+		Arrays.sort(sorted, Comparator.comparing(FileInfo::getAbsolutePath));
+		final List<FileInfo> entries = Arrays.asList(sorted);
+		final List<SubtreeInfo> subtrees = new ArrayList<>(topDirectories.size());
+		for (FileInfo directory : topDirectories.values())
+		{
+			final String prefix = directory.getAbsolutePath() + File.separatorChar;
+			subtrees.add(new SubtreeInfo(directory, entries.subList(indexOf(sorted, prefix),
+					indexOf(sorted, prefix + Character.MAX_VALUE))));
+		}
+		return new Subtrees(tops, topDirectories, subtrees);
+	}
+
+	/**
+	 * Gets the index of the first of the sorted events whose path is not
+	 * before the given one.
+	 *
+	 * @param sorted
+	 *            the events, sorted by path
+	 * @param path
+	 *            the path
+	 * @return the index, the length if none
+	 */
+	private static int indexOf(FileInfo[] sorted, String path)
+	{
+		int low = 0;
+		int high = sorted.length;
+		while (low < high)
+		{
+			final int middle = (low + high) >>> 1;
+			if (sorted[middle].getAbsolutePath().compareTo(path) < 0)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Gets the highest of the given directories the path is or lies under.
+	 *
+	 * @param directories
+	 *            the directories
+	 * @param path
+	 *            the path
+	 * @param directory
+	 *            whether the path is a directory itself
+	 * @return the top directory, null if none
+	 */
+	private static String topOf(Set<String> directories, String path, boolean directory)
+	{
+		String top = directory ? path : null;
+		for (int i = path.lastIndexOf(File.separatorChar); i > 0; i = path.lastIndexOf(File.separatorChar, i - 1))
+		{
+			final String parent = path.substring(0, i);
+			if (directories.contains(parent))
+			{
+				top = parent;
+			}
+		}
+		return top;
+	}
+
+	/**
+	 * Gets the top directory of the tree the event lies in.
+	 *
+	 * @param index
+	 *            the index of the event
+	 * @return the top directory, null if none
+	 */
+	FileInfo topOf(int index)
+	{
+		return tops == null || tops[index] == null ? null : topDirectories.get(tops[index]);
+	}
+
+	/**
+	 * Gets the subtrees.
+	 *
+	 * @return the subtrees
+	 */
+	List<SubtreeInfo> getSubtrees()
+	{
+		return subtrees;
+	}
+}
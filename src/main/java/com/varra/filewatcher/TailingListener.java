@@ -0,0 +1,168 @@
+/*
+ * FileWatcher - TailingListener.java, Oct 18, 2026 6:12:40 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.filewatcher.fs.WatchedFileSystem;
+import com.varra.filewatcher.info.FileInfo;
+import com.varra.filewatcher.listener.FileNotificationListener;
+import com.varra.filewatcher.listener.TailListener;
+import com.varra.filewatcher.listener.WatchEventType;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.NoSuchFileException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adapts a {@link TailListener} to the file notifications, delivering on
+ * every create and modify of a file only the bytes after the last ones
+ * delivered, mapped straight from the file without copying. A file shorter
+ * than delivered so far, or with another file key, is taken as rotated and
+ * delivered from its start.
+ * <p>
+ * One adapter is registered per directory of the tail listener. Its
+ * notifications of a file are dispatched in order on the same lane, keyed
+ * by either the file or the directory registered, so the offset of a file is
+ * never updated concurrently; overlapping directories have their own
+ * adapters and offsets.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ *
+ */
+final class TailingListener implements FileNotificationListener
+{
+
+	/** The largest range mapped at once. */
+	private static final long MAX_MAPPED = Integer.MAX_VALUE;
+
+	/** The tail listener. */
+	private final TailListener tail;
+
+	/** The file system. */
+	private final WatchedFileSystem fileSystem;
+
+	/** The files tailed, by their absolute path. */
+	private final Map<String, Offset> offsets;
+
+	/**
+	 * Instantiates a new tailing listener.
+	 *
+	 * @param tail
+	 *            the tail listener
+	 * @param fileSystem
+	 *            the file system
+	 */
+	TailingListener(TailListener tail, WatchedFileSystem fileSystem)
+	{
+		this.tail = tail;
+		this.fileSystem = fileSystem;
+		this.offsets = new ConcurrentHashMap<>();
+	}
+
+	@Override
+	public void onWatchEvent(WatchEventType type, FileInfo fileInfo)
+	{
+		// Only the files are tailed.
+	}
+
+	@Override
+	public void onCreateFile(FileInfo fileInfo)
+	{
+		// A new file is delivered from its start.
+		deliver(fileInfo, 0);
+	}
+
+	@Override
+	public void onModifyFile(FileInfo oldFileInfo, FileInfo newFileInfo)
+	{
+		// A file never delivered before is tailed from its size before the
+		// modification.
+		deliver(newFileInfo, oldFileInfo.getSize());
+	}
+
+	@Override
+	public void onDeleteFile(FileInfo fileInfo)
+	{
+		offsets.remove(fileInfo.getAbsolutePath());
+	}
+
+	/**
+	 * Delivers the bytes of the file after the last ones delivered.
+	 *
+	 * @param fileInfo
+	 *            the file info
+	 * @param start
+	 *            the position to start from, if never delivered before
+	 */
+	private void deliver(FileInfo fileInfo, long start)
+	{
+		final String path = fileInfo.getAbsolutePath();
+		final Object fileKey = fileSystem.getFileKey(path);
+		Offset offset = offsets.get(path);
+		if (offset == null)
+		{
+			offset = new Offset(fileKey, start);
+			offsets.put(path, offset);
+		}
+		try (FileChannel channel = fileSystem.open(path))
+		{
+			final long size = channel.size();
+			if (size < offset.position || !Objects.equals(fileKey, offset.fileKey))
+			{
+				offset.fileKey = fileKey;
+				offset.position = 0;
+				tail.onRotate(fileInfo);
+			}
+			while (offset.position < size)
+			{
+				final long count = Math.min(size - offset.position, MAX_MAPPED);
+				tail.onAppend(fileInfo, channel.map(MapMode.READ_ONLY, offset.position, count), offset.position);
+				offset.position += count;
+			}
+		}
+		catch (NoSuchFileException e)
+		{
+			// Vanished meanwhile, its delete follows.
+			offsets.remove(path);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * The position delivered up to in a file.
+	 */
+	private static final class Offset
+	{
+
+		/** The file key. */
+		Object fileKey;
+
+		/** The position. */
+		long position;
+
+		/**
+		 * Instantiates a new offset.
+		 *
+		 * @param fileKey
+		 *            the file key
+		 * @param position
+		 *            the position
+		 */
+		Offset(Object fileKey, long position)
+		{
+			this.fileKey = fileKey;
+			this.position = position;
+		}
+	}
+}
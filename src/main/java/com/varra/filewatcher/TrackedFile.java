@@ -0,0 +1,116 @@
+/*
+ * FileWatcher - TrackedFile.java, Oct 18, 2026 10:05:12 AM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.filewatcher.info.FileInfo;
+
+/**
+ * A mutable snapshot entry of a monitored file. The scanner compares the
+ * freshly read attributes against this entry in place, so an unchanged file
+ * costs no allocation; a {@link FileInfo} is only materialized when an event
+ * is actually emitted.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ *
+ */
+final class TrackedFile
+{
+
+	/** The absolute path, also the key in the snapshot. */
+	final String path;
+
+	/** The last modified. */
+	long lastModified;
+
+	/** The size, always 0 for directories. */
+	long size;
+
+	/** The directory. */
+	boolean directory;
+
+	/** The scan generation this entry was last seen in. */
+	int generation;
+
+	/** The last emitted file info, null until an event needed one. */
+	private FileInfo info;
+
+	/**
+	 * Instantiates a new tracked file.
+	 *
+	 * @param path
+	 *            the path
+	 * @param lastModified
+	 *            the last modified
+	 * @param size
+	 *            the size
+	 * @param directory
+	 *            the directory
+	 */
+	TrackedFile(String path, long lastModified, long size, boolean directory)
+	{
+		this.path = path;
+		this.lastModified = lastModified;
+		this.size = size;
+		this.directory = directory;
+	}
+
+	/**
+	 * Instantiates a new tracked file from an emitted file info.
+	 *
+	 * @param info
+	 *            the info
+	 */
+	TrackedFile(FileInfo info)
+	{
+		this(info.getAbsolutePath(), 0, 0, false);
+		update(info);
+	}
+
+	/**
+	 * Checks whether the given attributes differ from this entry.
+	 *
+	 * @param lastModified
+	 *            the last modified
+	 * @param size
+	 *            the size
+	 * @return true, if changed
+	 */
+	boolean isChanged(long lastModified, long size)
+	{
+		return this.lastModified != lastModified || this.size != size;
+	}
+
+	/**
+	 * Replaces the attributes of this entry with the given file info.
+	 *
+	 * @param info
+	 *            the info
+	 */
+	void update(FileInfo info)
+	{
+		this.info = info;
+		this.lastModified = info.lastModified();
+		this.directory = info.isDirectory();
+		this.size = directory ? 0 : info.getSize();
+	}
+
+	/**
+	 * Gets the file info of this entry, synthesizing it from the tracked
+	 * attributes if none has been emitted yet.
+	 *
+	 * @return the file info
+	 */
+	FileInfo toFileInfo()
+	{
+		if (info == null)
+		{
+			info = new FileInfo(path, lastModified, size, directory);
+		}
+		return info;
+	}
+}
@@ -0,0 +1,465 @@
+/*
+ * FileWatcher - WatchEventPublisher.java, Oct 18, 2026 10:06:15 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.classification.InterfaceAudience;
+import com.varra.classification.InterfaceStability;
+import com.varra.filewatcher.info.FileEvent;
+import com.varra.filewatcher.info.FileInfo;
+import com.varra.filewatcher.listener.FileNotificationListener;
+import com.varra.filewatcher.listener.WatchEventType;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.varra.filewatcher.listener.WatchEventType.CREATE;
+import static com.varra.filewatcher.listener.WatchEventType.DELETE;
+import static com.varra.filewatcher.listener.WatchEventType.MODIFY;
+
+/**
+ * The events of a registered directory as a Reactive Streams
+ * {@link Publisher}, see {@link FileWatcher#publisher(String)}. Each
+ * subscriber is sent no more events than it requested: the events it has not
+ * requested yet are buffered, and coalesced by path, e.g. a create followed
+ * by a modify is sent as one create with the latest file info, and a create
+ * followed by a delete is not sent at all. Once every subscriber of every
+ * publisher of the watcher holds a full buffer, and the watcher has no other
+ * listener, it skips its scans until one of them requests more, running
+ * one anyway after a bounded number skipped in a row; the changes in between
+ * are picked up by the next scan, so the filesystem itself is the buffer.
+ * <p>
+ * A scan may add more events than the buffer holds, the buffer size is the
+ * point at which the subscriber is saturated rather than a hard limit. The
+ * events are sent on the thread delivering the notifications or on the one
+ * requesting, never concurrently.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class WatchEventPublisher implements Publisher<FileEvent>, AutoCloseable
+{
+
+	/** The watcher. */
+	private final FileWatcher watcher;
+
+	/** The absolute directory. */
+	private final String directory;
+
+	/** The events buffered per subscriber before it is saturated. */
+	private final int bufferSize;
+
+	/** The listener registered for the directory. */
+	private final FileNotificationListener listener;
+
+	/** The subscriptions. */
+	private final List<EventSubscription> subscriptions;
+
+	/** Whether closed. */
+	private volatile boolean closed;
+
+	/**
+	 * Instantiates a new watch event publisher, registered by the watcher.
+	 *
+	 * @param watcher
+	 *            the watcher
+	 * @param directory
+	 *            the absolute directory
+	 * @param bufferSize
+	 *            the events buffered per subscriber before it is saturated
+	 */
+	WatchEventPublisher(FileWatcher watcher, String directory, int bufferSize)
+	{
+		this.watcher = watcher;
+		this.directory = directory;
+		this.bufferSize = bufferSize;
+		this.listener = new Listener();
+		this.subscriptions = new CopyOnWriteArrayList<>();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.reactivestreams.Publisher#subscribe(org.reactivestreams.Subscriber)
+	 */
+	@Override
+	public void subscribe(Subscriber<? super FileEvent> subscriber)
+	{
+		Objects.requireNonNull(subscriber, "subscriber");
+		final EventSubscription subscription = new EventSubscription(subscriber);
+		// Published only once onSubscribe returns, so no other signal can
+		// precede it (rule 1.3); the events meanwhile are not sent to it.
+		subscriber.onSubscribe(subscription);
+		subscriptions.add(subscription);
+		if (subscription.cancelled)
+		{
+			subscriptions.remove(subscription);
+		}
+		else if (closed)
+		{
+			subscription.complete();
+		}
+	}
+
+	/**
+	 * Unregisters the publisher from the watcher, every subscriber is
+	 * completed once sent the events buffered for it.
+	 */
+	@Override
+	public void close()
+	{
+		if (closed)
+		{
+			return;
+		}
+		closed = true;
+		watcher.unRegisterPublisher(this);
+		for (EventSubscription subscription : subscriptions)
+		{
+			subscription.complete();
+		}
+	}
+
+	/**
+	 * Gets the directory.
+	 *
+	 * @return the absolute directory
+	 */
+	public String getDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Gets the listener registered for the directory.
+	 *
+	 * @return the listener
+	 */
+	FileNotificationListener getListener()
+	{
+		return listener;
+	}
+
+	/**
+	 * Checks if the publisher has any subscriber.
+	 *
+	 * @return true, if subscribed
+	 */
+	boolean hasSubscribers()
+	{
+		return !subscriptions.isEmpty();
+	}
+
+	/**
+	 * Checks if every subscriber holds a full buffer, true if none.
+	 *
+	 * @return true, if saturated
+	 */
+	boolean isSaturated()
+	{
+		for (EventSubscription subscription : subscriptions)
+		{
+			if (!subscription.isSaturated())
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Publishes the event to every subscriber.
+	 *
+	 * @param event
+	 *            the event
+	 */
+	private void publish(FileEvent event)
+	{
+		for (EventSubscription subscription : subscriptions)
+		{
+			subscription.offer(event);
+		}
+	}
+
+	/**
+	 * Coalesces the event with the one still buffered for the same path.
+	 *
+	 * @param buffered
+	 *            the event buffered, null if none
+	 * @param event
+	 *            the event
+	 * @return the coalesced event, null if they cancel out
+	 */
+	private static FileEvent coalesce(FileEvent buffered, FileEvent event)
+	{
+		if (buffered == null)
+		{
+			return event;
+		}
+		final WatchEventType type = event.getType();
+		switch (buffered.getType())
+		{
+			case CREATE:
+				return type == DELETE ? null : type == MODIFY ? new FileEvent(CREATE, null, event.getFileInfo())
+						: event;
+			case MODIFY:
+				return type == MODIFY ? new FileEvent(MODIFY, buffered.getOldFileInfo(), event.getFileInfo()) : event;
+			default:
+				// Replaced, as a modify like the scan reports it.
+				return type == CREATE ? new FileEvent(MODIFY, buffered.getFileInfo(), event.getFileInfo()) : event;
+		}
+	}
+
+	/**
+	 * The listener turning the notifications in to events.
+	 */
+	private final class Listener implements FileNotificationListener
+	{
+
+		/* (non-Javadoc)
+		 * @see com.varra.filewatcher.listener.FileNotificationListener#onWatchEvent(com.varra.filewatcher.listener.WatchEventType, com.varra.filewatcher.info.FileInfo)
+		 */
+		@Override
+		public void onWatchEvent(WatchEventType type, FileInfo fileInfo)
+		{
+			publish(new FileEvent(type, null, fileInfo));
+		}
+
+		/* (non-Javadoc)
+		 * @see com.varra.filewatcher.listener.FileNotificationListener#onModifyFile(com.varra.filewatcher.info.FileInfo, com.varra.filewatcher.info.FileInfo)
+		 */
+		@Override
+		public void onModifyFile(FileInfo oldFileInfo, FileInfo newFileInfo)
+		{
+			publish(new FileEvent(MODIFY, oldFileInfo, newFileInfo));
+		}
+
+		/* (non-Javadoc)
+		 * @see com.varra.filewatcher.listener.FileNotificationListener#onModifyDirectory(com.varra.filewatcher.info.FileInfo, com.varra.filewatcher.info.FileInfo)
+		 */
+		@Override
+		public void onModifyDirectory(FileInfo oldFileInfo, FileInfo newFileInfo)
+		{
+			publish(new FileEvent(MODIFY, oldFileInfo, newFileInfo));
+		}
+	}
+
+	/**
+	 * The subscription of a subscriber, with the events buffered for it.
+	 */
+	private final class EventSubscription implements Subscription
+	{
+
+		/** The subscriber. */
+		private final Subscriber<? super FileEvent> subscriber;
+
+		/** The events buffered, by path, in the order first buffered. */
+		private final Map<String, FileEvent> buffer;
+
+		/** The events requested and not sent yet. */
+		private final AtomicLong requested;
+
+		/** The drains pending, only one of them runs at a time. */
+		private final AtomicInteger drains;
+
+		/** Whether cancelled, or terminated. */
+		private volatile boolean cancelled;
+
+		/** Whether to complete once the buffer is sent. */
+		private volatile boolean completing;
+
+		/** The error to be sent, if any. */
+		private volatile Throwable error;
+
+		/**
+		 * Instantiates a new event subscription.
+		 *
+		 * @param subscriber
+		 *            the subscriber
+		 */
+		EventSubscription(Subscriber<? super FileEvent> subscriber)
+		{
+			this.subscriber = subscriber;
+			this.buffer = new LinkedHashMap<>();
+			this.requested = new AtomicLong();
+			this.drains = new AtomicInteger();
+		}
+
+		/* (non-Javadoc)
+		 * @see org.reactivestreams.Subscription#request(long)
+		 */
+		@Override
+		public void request(long n)
+		{
+			if (n <= 0)
+			{
+				error = new IllegalArgumentException("Requested " + n + " events, must be positive (rule 3.9).");
+			}
+			else
+			{
+				requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current
+						+ added);
+			}
+			drain();
+		}
+
+		/* (non-Javadoc)
+		 * @see org.reactivestreams.Subscription#cancel()
+		 */
+		@Override
+		public void cancel()
+		{
+			cancelled = true;
+			subscriptions.remove(this);
+			synchronized (buffer)
+			{
+				buffer.clear();
+			}
+		}
+
+		/**
+		 * Buffers the event, coalescing it with the one buffered for its path.
+		 *
+		 * @param event
+		 *            the event
+		 */
+		void offer(FileEvent event)
+		{
+			if (cancelled)
+			{
+				return;
+			}
+			final String path = event.getFileInfo().getAbsolutePath();
+			synchronized (buffer)
+			{
+				final FileEvent coalesced = coalesce(buffer.get(path), event);
+				if (coalesced == null)
+				{
+					buffer.remove(path);
+				}
+				else
+				{
+					buffer.put(path, coalesced);
+				}
+			}
+			drain();
+		}
+
+		/**
+		 * Completes the subscriber once the buffer is sent.
+		 */
+		void complete()
+		{
+			completing = true;
+			drain();
+		}
+
+		/**
+		 * Checks if the buffer is full.
+		 *
+		 * @return true, if saturated
+		 */
+		boolean isSaturated()
+		{
+			synchronized (buffer)
+			{
+				return buffer.size() >= bufferSize;
+			}
+		}
+
+		/**
+		 * Sends the events requested, and the termination, on the calling
+		 * thread unless another one is already sending.
+		 */
+		private void drain()
+		{
+			if (drains.getAndIncrement() != 0)
+			{
+				return;
+			}
+			int missed = 1;
+			do
+			{
+				while (!cancelled && error == null && requested.get() > 0)
+				{
+					final FileEvent event = poll();
+					if (event == null)
+					{
+						break;
+					}
+					if (requested.get() != Long.MAX_VALUE)
+					{
+						requested.decrementAndGet();
+					}
+					try
+					{
+						subscriber.onNext(event);
+					}
+					catch (Throwable e)
+					{
+						// Breaks the rule 2.13, the subscription is cancelled.
+						e.printStackTrace();
+						cancel();
+					}
+				}
+				if (!cancelled && error != null)
+				{
+					cancel();
+					subscriber.onError(error);
+				}
+				else if (!cancelled && completing && isEmpty())
+				{
+					cancel();
+					subscriber.onComplete();
+				}
+				missed = drains.addAndGet(-missed);
+			}
+			while (missed != 0);
+		}
+
+		/**
+		 * Removes the first event buffered.
+		 *
+		 * @return the event, null if none
+		 */
+		private FileEvent poll()
+		{
+			synchronized (buffer)
+			{
+				final Iterator<FileEvent> iterator = buffer.values().iterator();
+				if (!iterator.hasNext())
+				{
+					return null;
+				}
+				final FileEvent event = iterator.next();
+				iterator.remove();
+				return event;
+			}
+		}
+
+		/**
+		 * Checks if the buffer is empty.
+		 *
+		 * @return true, if empty
+		 */
+		private boolean isEmpty()
+		{
+			synchronized (buffer)
+			{
+				return buffer.isEmpty();
+			}
+		}
+	}
+}
@@ -0,0 +1,353 @@
+/*
+ * FileWatcher - WatcherIndex.java, Oct 18, 2026 7:58:37 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.classification.InterfaceAudience;
+import com.varra.classification.InterfaceStability;
+import com.varra.filewatcher.info.FileInfo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * The read only index of the files watched by a {@link FileWatcher}, sorted
+ * by path, answering from memory instead of walking the trees again. Every
+ * query sees the index as of the last completed scan: the changes of a scan
+ * are applied at its end all at once, and never while a query runs.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class WatcherIndex
+{
+
+	/** The entries, by their absolute path. */
+	private final NavigableMap<String, Entry> entries = new TreeMap<>();
+
+	/** The lock, queries read and the scan writes. */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/** The scans applied. */
+	private long scans;
+
+	/** Resolves the paths queried to the absolute ones, as the watcher does. */
+	private final UnaryOperator<String> resolver;
+
+	/**
+	 * Instantiates a new watcher index.
+	 *
+	 * @param resolver
+	 *            resolves the paths queried to the absolute ones
+	 */
+	WatcherIndex(UnaryOperator<String> resolver)
+	{
+		this.resolver = resolver;
+	}
+
+	/**
+	 * Gets the entry of the given path.
+	 *
+	 * @param path
+	 *            the path, resolved like the registered directories
+	 * @return the file info, null if not watched
+	 */
+	public FileInfo get(String path)
+	{
+		final String absolutePath = resolver.apply(path);
+		lock.readLock().lock();
+		try
+		{
+			final Entry entry = entries.get(absolutePath);
+			return entry != null ? entry.toFileInfo() : null;
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the entries matching the query, sorted by path.
+	 *
+	 * @param query
+	 *            the query
+	 * @return the file infos
+	 */
+	public List<FileInfo> find(IndexQuery query)
+	{
+		final List<Entry> matching = matching(query);
+		final List<FileInfo> found = new ArrayList<>(matching.size());
+		for (Entry entry : matching)
+		{
+			found.add(entry.toFileInfo());
+		}
+		return found;
+	}
+
+	/**
+	 * Streams the entries matching the query to the consumer, sorted by path.
+	 * The entries matching are gathered under the lock and the consumer is
+	 * called once it is released, so a slow consumer never holds the scan.
+	 *
+	 * @param query
+	 *            the query
+	 * @param consumer
+	 *            the consumer
+	 */
+	public void forEach(IndexQuery query, Consumer<FileInfo> consumer)
+	{
+		for (Entry entry : matching(query))
+		{
+			consumer.accept(entry.toFileInfo());
+		}
+	}
+
+	/**
+	 * Gets the entries matching the query, sorted by path.
+	 *
+	 * @param query
+	 *            the query
+	 * @return the entries
+	 */
+	private List<Entry> matching(IndexQuery query)
+	{
+		final String directory = directoryOf(query);
+		final List<Entry> matching = new ArrayList<>();
+		lock.readLock().lock();
+		try
+		{
+			for (Entry entry : range(directory))
+			{
+				if (query.matches(directory, entry.path, entry.size, entry.lastModified, entry.directory))
+				{
+					matching.add(entry);
+				}
+			}
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+		return matching;
+	}
+
+	/**
+	 * Counts the entries matching the query.
+	 *
+	 * @param query
+	 *            the query
+	 * @return the count
+	 */
+	public long count(IndexQuery query)
+	{
+		final String directory = directoryOf(query);
+		lock.readLock().lock();
+		try
+		{
+			long count = 0;
+			for (Entry entry : range(directory))
+			{
+				if (query.matches(directory, entry.path, entry.size, entry.lastModified, entry.directory))
+				{
+					count++;
+				}
+			}
+			return count;
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Sums the size of the entries matching the query.
+	 *
+	 * @param query
+	 *            the query
+	 * @return the total size
+	 */
+	public long totalSize(IndexQuery query)
+	{
+		final String directory = directoryOf(query);
+		lock.readLock().lock();
+		try
+		{
+			long totalSize = 0;
+			for (Entry entry : range(directory))
+			{
+				if (query.matches(directory, entry.path, entry.size, entry.lastModified, entry.directory))
+				{
+					totalSize += entry.size;
+				}
+			}
+			return totalSize;
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of scans the index is as of.
+	 *
+	 * @return the scans
+	 */
+	public long getScans()
+	{
+		lock.readLock().lock();
+		try
+		{
+			return scans;
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the directory of the query, resolved to the absolute one.
+	 *
+	 * @param query
+	 *            the query
+	 * @return the absolute directory, null for all
+	 */
+	private String directoryOf(IndexQuery query)
+	{
+		return query.getDirectory() == null ? null : resolver.apply(query.getDirectory());
+	}
+
+	/**
+	 * Gets the entries of the given directory and under it.
+	 *
+	 * @param directory
+	 *            the directory, null for all
+	 * @return the entries
+	 */
+	private Collection<Entry> range(String directory)
+	{
+		if (directory == null)
+		{
+			return entries.values();
+		}
+		final String prefix = directory.endsWith(File.separator) ? directory : directory + File.separator;
+		final String end = prefix.substring(0, prefix.length() - 1) + (char) (File.separatorChar + 1);
+		final Entry self = entries.get(directory);
+		final Collection<Entry> children = entries.subMap(prefix, true, end, false).values();
+		if (self == null || prefix.equals(directory))
+		{
+			return children;
+		}
+		final List<Entry> range = new ArrayList<>(children.size() + 1);
+		range.add(self);
+		range.addAll(children);
+		return range;
+	}
+
+	/**
+	 * Applies the changes of a completed scan, on the scan thread.
+	 *
+	 * @param changed
+	 *            the entries changed by the scan, by path, null if removed
+	 */
+	void apply(Map<String, TrackedFile> changed)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			for (Map.Entry<String, TrackedFile> change : changed.entrySet())
+			{
+				final TrackedFile trackedFile = change.getValue();
+				if (trackedFile == null)
+				{
+					entries.remove(change.getKey());
+				}
+				else
+				{
+					entries.put(change.getKey(), new Entry(trackedFile));
+				}
+			}
+			scans++;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Empties the index.
+	 */
+	void clear()
+	{
+		lock.writeLock().lock();
+		try
+		{
+			entries.clear();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * An immutable copy of a snapshot entry.
+	 */
+	private static final class Entry
+	{
+
+		/** The absolute path. */
+		final String path;
+
+		/** The last modified. */
+		final long lastModified;
+
+		/** The size. */
+		final long size;
+
+		/** The directory. */
+		final boolean directory;
+
+		/**
+		 * Instantiates a new entry.
+		 *
+		 * @param trackedFile
+		 *            the tracked file
+		 */
+		Entry(TrackedFile trackedFile)
+		{
+			this.path = trackedFile.path;
+			this.lastModified = trackedFile.lastModified;
+			this.size = trackedFile.size;
+			this.directory = trackedFile.directory;
+		}
+
+		/**
+		 * Gets the file info of the entry.
+		 *
+		 * @return the file info
+		 */
+		FileInfo toFileInfo()
+		{
+			return new FileInfo(path, lastModified, size, directory);
+		}
+	}
+}
@@ -0,0 +1,331 @@
+/*
+ * FileWatcher - WatcherMetrics.java, Oct 18, 2026 3:58:12 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.classification.InterfaceAudience;
+import com.varra.classification.InterfaceStability;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The running counters of a {@link FileWatcher}, updated by the watcher and
+ * safe to be read from any thread.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ *
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class WatcherMetrics
+{
+
+	/** The scans completed. */
+	private final LongAdder scans = new LongAdder();
+
+	/** The scans that took longer than the interval. */
+	private final LongAdder scanOverruns = new LongAdder();
+
+	/** The duration of the last scan, in nano seconds. */
+	private final AtomicLong lastScanNanos = new AtomicLong();
+
+	/** The duration of the longest scan, in nano seconds. */
+	private final AtomicLong maxScanNanos = new AtomicLong();
+
+	/** The events notified, once per event regardless of the listeners. */
+	private final LongAdder events = new LongAdder();
+
+	/** The files that vanished while being scanned. */
+	private final LongAdder vanishedFiles = new LongAdder();
+
+	/** The scans that verified every root. */
+	private final LongAdder fullScans = new LongAdder();
+
+	/** The dirty subtrees rescanned by the scans in between the full ones. */
+	private final LongAdder reconciledSubtrees = new LongAdder();
+
+	/** The events or commits the journal failed to make durable. */
+	private final LongAdder journalFailures = new LongAdder();
+
+	/** The scans skipped as every subscriber was saturated. */
+	private final LongAdder throttledScans = new LongAdder();
+
+	/** The entries of the snapshot held in memory after the last scan. */
+	private final AtomicLong residentEntries = new AtomicLong();
+
+	/** The entries of the snapshot spilled to disk after the last scan. */
+	private final AtomicLong spilledEntries = new AtomicLong();
+
+	/** The times the spilled files of a directory were read back. */
+	private final LongAdder pageIns = new LongAdder();
+
+	/**
+	 * Records a completed scan.
+	 *
+	 * @param nanos
+	 *            the duration in nano seconds
+	 * @param intervalMillis
+	 *            the interval of the scans in milli seconds
+	 */
+	void onScan(long nanos, long intervalMillis)
+	{
+		scans.increment();
+		if (intervalMillis > 0 && nanos > intervalMillis * 1_000_000)
+		{
+			scanOverruns.increment();
+		}
+		lastScanNanos.set(nanos);
+		maxScanNanos.accumulateAndGet(nanos, Math::max);
+	}
+
+	/**
+	 * Records a notified event.
+	 */
+	void onEvent()
+	{
+		events.increment();
+	}
+
+	/**
+	 * Records a file that vanished while being scanned.
+	 */
+	void onVanished()
+	{
+		vanishedFiles.increment();
+	}
+
+	/**
+	 * Records a full scan.
+	 */
+	void onFullScan()
+	{
+		fullScans.increment();
+	}
+
+	/**
+	 * Records a scan that rescanned only the dirty subtrees.
+	 *
+	 * @param subtrees
+	 *            the number of dirty subtrees
+	 */
+	void onReconcile(int subtrees)
+	{
+		reconciledSubtrees.add(subtrees);
+	}
+
+	/**
+	 * Records an event, or a commit, the journal failed to make durable.
+	 */
+	void onJournalFailure()
+	{
+		journalFailures.increment();
+	}
+
+	/**
+	 * Records a scan skipped as every subscriber was saturated.
+	 */
+	void onThrottledScan()
+	{
+		throttledScans.increment();
+	}
+
+	/**
+	 * Records the size of the snapshot after a scan.
+	 *
+	 * @param resident
+	 *            the entries held in memory
+	 * @param spilled
+	 *            the entries spilled to disk
+	 */
+	void onSnapshot(long resident, long spilled)
+	{
+		residentEntries.set(resident);
+		spilledEntries.set(spilled);
+	}
+
+	/**
+	 * Records the spilled files of a directory read back.
+	 */
+	void onPageIn()
+	{
+		pageIns.increment();
+	}
+
+	/**
+	 * Gets the scans completed.
+	 *
+	 * @return the scans
+	 */
+	public long getScans()
+	{
+		return scans.sum();
+	}
+
+	/**
+	 * Gets the scans that took longer than the interval, the following scan
+	 * is delayed by each of them.
+	 *
+	 * @return the scan overruns
+	 */
+	public long getScanOverruns()
+	{
+		return scanOverruns.sum();
+	}
+
+	/**
+	 * Gets the duration of the last scan.
+	 *
+	 * @return the last scan in milli seconds
+	 */
+	public double getLastScanMillis()
+	{
+		return lastScanNanos.get() / 1e6;
+	}
+
+	/**
+	 * Gets the duration of the longest scan.
+	 *
+	 * @return the max scan in milli seconds
+	 */
+	public double getMaxScanMillis()
+	{
+		return maxScanNanos.get() / 1e6;
+	}
+
+	/**
+	 * Gets the events notified.
+	 *
+	 * @return the events
+	 */
+	public long getEvents()
+	{
+		return events.sum();
+	}
+
+	/**
+	 * Gets the files that vanished in between being listed and their
+	 * attributes being read, they are never notified as created and are
+	 * notified as deleted if tracked before.
+	 *
+	 * @return the vanished files
+	 */
+	public long getVanishedFiles()
+	{
+		return vanishedFiles.sum();
+	}
+
+	/**
+	 * Gets the scans that verified every root.
+	 *
+	 * @return the full scans
+	 */
+	public long getFullScans()
+	{
+		return fullScans.sum();
+	}
+
+	/**
+	 * Gets the dirty subtrees rescanned by the scans in between the full
+	 * ones.
+	 *
+	 * @return the reconciled subtrees
+	 */
+	public long getReconciledSubtrees()
+	{
+		return reconciledSubtrees.sum();
+	}
+
+	/**
+	 * Gets the events, and the commits, the journal failed to make durable;
+	 * the events were notified all the same, with the sequence 0.
+	 *
+	 * @return the journal failures
+	 */
+	public long getJournalFailures()
+	{
+		return journalFailures.sum();
+	}
+
+	/**
+	 * Gets the scans skipped as every subscriber of the publishers was
+	 * saturated.
+	 *
+	 * @return the throttled scans
+	 */
+	public long getThrottledScans()
+	{
+		return throttledScans.sum();
+	}
+
+	/**
+	 * Gets the entries of the snapshot held in memory after the last scan.
+	 *
+	 * @return the resident entries
+	 */
+	public long getResidentEntries()
+	{
+		return residentEntries.get();
+	}
+
+	/**
+	 * Gets the entries of the snapshot spilled to disk after the last scan.
+	 *
+	 * @return the spilled entries
+	 */
+	public long getSpilledEntries()
+	{
+		return spilledEntries.get();
+	}
+
+	/**
+	 * Gets the times the spilled files of a directory were read back.
+	 *
+	 * @return the page ins
+	 */
+	public long getPageIns()
+	{
+		return pageIns.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		final StringBuilder builder = new StringBuilder();
+		builder.append("WatcherMetrics [scans=");
+		builder.append(getScans());
+		builder.append(", scanOverruns=");
+		builder.append(getScanOverruns());
+		builder.append(", lastScanMillis=");
+		builder.append(getLastScanMillis());
+		builder.append(", maxScanMillis=");
+		builder.append(getMaxScanMillis());
+		builder.append(", events=");
+		builder.append(getEvents());
+		builder.append(", vanishedFiles=");
+		builder.append(getVanishedFiles());
+		builder.append(", fullScans=");
+		builder.append(getFullScans());
+		builder.append(", reconciledSubtrees=");
+		builder.append(getReconciledSubtrees());
+		builder.append(", journalFailures=");
+		builder.append(getJournalFailures());
+		builder.append(", throttledScans=");
+		builder.append(getThrottledScans());
+		builder.append(", residentEntries=");
+		builder.append(getResidentEntries());
+		builder.append(", spilledEntries=");
+		builder.append(getSpilledEntries());
+		builder.append(", pageIns=");
+		builder.append(getPageIns());
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * FileWatcher - FileAttributes.java, Oct 18, 2026 2:31:17 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.fs;
+
+/**
+ * A mutable holder of the attributes the scan compares, filled in by the
+ * {@link WatchedFileSystem}. A single instance is reused for every file of a
+ * scan, so reading the attributes does not allocate.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+public final class FileAttributes
+{
+
+	/** The last modified. */
+	private long lastModified;
+
+	/** The size, 0 for directories. */
+	private long size;
+
+	/** The directory. */
+	private boolean directory;
+
+	/**
+	 * Sets all the attributes.
+	 *
+	 * @param lastModified
+	 *            the last modified
+	 * @param size
+	 *            the size
+	 * @param directory
+	 *            the directory
+	 */
+	public void set(long lastModified, long size, boolean directory)
+	{
+		this.lastModified = lastModified;
+		this.size = directory ? 0 : size;
+		this.directory = directory;
+	}
+
+	/**
+	 * Gets the last modified.
+	 *
+	 * @return the lastModified
+	 */
+	public long lastModified()
+	{
+		return lastModified;
+	}
+
+	/**
+	 * Gets the size.
+	 *
+	 * @return the size, 0 for directories
+	 */
+	public long getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Checks if is the directory.
+	 *
+	 * @return the directory
+	 */
+	public boolean isDirectory()
+	{
+		return directory;
+	}
+}
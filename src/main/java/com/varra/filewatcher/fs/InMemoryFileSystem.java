@@ -0,0 +1,463 @@
+/*
+ * FileWatcher - InMemoryFileSystem.java, Oct 18, 2026 2:46:40 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.fs;
+
+import com.varra.classification.InterfaceAudience;
+import com.varra.classification.InterfaceStability;
+import com.varra.filewatcher.info.FileInfo;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link WatchedFileSystem} held entirely in memory, to simulate trees of
+ * millions of files and slow filesystems without touching the disk. The
+ * modification times come from a controllable clock, and every operation
+ * can be given a latency, e.g. to reproduce the profile of an NFS mount:
+ *
+ * <pre>
+ * final InMemoryFileSystem fileSystem = new InMemoryFileSystem(clock::get)
+ *         .setLatency(Operation.STAT, 200_000)
+ *         .setLatency(Operation.LIST, () -&gt; 1_000_000 + random.nextInt(4_000_000));
+ * fileSystem.write("/data/in/a.pdf", 1024);
+ * </pre>
+ *
+ * The paths are absolute and use the platform's name separator. It is safe
+ * to change the tree while it is being watched.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class InMemoryFileSystem implements WatchedFileSystem
+{
+
+	/**
+	 * The operations that can be given a latency.
+	 */
+	public enum Operation
+	{
+		/** Listing a directory. */
+		LIST,
+		/** Reading the attributes or the details of a file. */
+		STAT
+	}
+
+	/** The separator. */
+	private static final char SEPARATOR = File.separatorChar;
+
+	/** The root directory. */
+	private final Directory root;
+
+	/** The clock of the modification times, in milli seconds. */
+	private final LongSupplier clock;
+
+	/** The latencies of the operations in nano seconds, replaced on change. */
+	private volatile Map<Operation, LongSupplier> latencies;
+
+	/**
+	 * Instantiates a new in memory file system on the system clock.
+	 */
+	public InMemoryFileSystem()
+	{
+		this(System::currentTimeMillis);
+	}
+
+	/**
+	 * Instantiates a new in memory file system.
+	 *
+	 * @param clock
+	 *            the clock of the modification times, in milli seconds
+	 */
+	public InMemoryFileSystem(LongSupplier clock)
+	{
+		this.clock = clock;
+		this.latencies = new EnumMap<>(Operation.class);
+		this.root = new Directory(clock.getAsLong());
+	}
+
+	/**
+	 * Sets a fixed latency of the operation.
+	 *
+	 * @param operation
+	 *            the operation
+	 * @param nanos
+	 *            the latency in nano seconds
+	 * @return the in memory file system
+	 */
+	public InMemoryFileSystem setLatency(Operation operation, long nanos)
+	{
+		return setLatency(operation, () -> nanos);
+	}
+
+	/**
+	 * Sets the latency of the operation, drawn for every call.
+	 *
+	 * @param operation
+	 *            the operation
+	 * @param nanos
+	 *            the latency in nano seconds
+	 * @return the in memory file system
+	 */
+	public synchronized InMemoryFileSystem setLatency(Operation operation, LongSupplier nanos)
+	{
+		final Map<Operation, LongSupplier> copy = new EnumMap<>(latencies);
+		copy.put(operation, nanos);
+		latencies = copy;
+		return this;
+	}
+
+	/**
+	 * Creates the directory and all its missing parents.
+	 *
+	 * @param path
+	 *            the absolute path
+	 * @return the in memory file system
+	 */
+	public InMemoryFileSystem createDirectories(String path)
+	{
+		directory(getAbsolutePath(path), true);
+		return this;
+	}
+
+	/**
+	 * Creates the file, or modifies it if it exists, with the given size at
+	 * the current time of the clock. The missing parents are created.
+	 *
+	 * @param path
+	 *            the absolute path
+	 * @param size
+	 *            the size
+	 * @return the in memory file system
+	 */
+	public InMemoryFileSystem write(String path, long size)
+	{
+		final String absolutePath = getAbsolutePath(path);
+		final int index = absolutePath.lastIndexOf(SEPARATOR);
+		final Directory parent = directory(absolutePath.substring(0, Math.max(index, 1)), true);
+		final String name = absolutePath.substring(index + 1);
+		final long now = clock.getAsLong();
+		final Node existing = parent.children.get(name);
+		if (existing instanceof Regular)
+		{
+			((Regular) existing).size = size;
+			existing.lastModified = now;
+		}
+		else if (existing == null)
+		{
+			parent.children.put(name, new Regular(now, size));
+			parent.lastModified = now;
+		}
+		else
+		{
+			throw new IllegalArgumentException("Is a directory: " + absolutePath);
+		}
+		return this;
+	}
+
+	/**
+	 * Deletes the file, or the directory with everything under it.
+	 *
+	 * @param path
+	 *            the absolute path
+	 * @return true, if deleted
+	 */
+	public boolean delete(String path)
+	{
+		final String absolutePath = getAbsolutePath(path);
+		final int index = absolutePath.lastIndexOf(SEPARATOR);
+		final Directory parent = directory(absolutePath.substring(0, Math.max(index, 1)), false);
+		if (parent != null && parent.children.remove(absolutePath.substring(index + 1)) != null)
+		{
+			parent.lastModified = clock.getAsLong();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Moves the file or the directory to the target, which must not exist.
+	 *
+	 * @param source
+	 *            the absolute source path
+	 * @param target
+	 *            the absolute target path
+	 * @return true, if moved
+	 */
+	public boolean move(String source, String target)
+	{
+		final String sourcePath = getAbsolutePath(source);
+		final String targetPath = getAbsolutePath(target);
+		final int sourceIndex = sourcePath.lastIndexOf(SEPARATOR);
+		final int targetIndex = targetPath.lastIndexOf(SEPARATOR);
+		final Directory sourceParent = directory(sourcePath.substring(0, Math.max(sourceIndex, 1)), false);
+		final Directory targetParent = directory(targetPath.substring(0, Math.max(targetIndex, 1)), true);
+		final Node node = sourceParent == null ? null : sourceParent.children.remove(sourcePath.substring(sourceIndex + 1));
+		if (node == null)
+		{
+			return false;
+		}
+		final long now = clock.getAsLong();
+		targetParent.children.put(targetPath.substring(targetIndex + 1), node);
+		sourceParent.lastModified = now;
+		targetParent.lastModified = now;
+		return true;
+	}
+
+	@Override
+	public String getAbsolutePath(String path)
+	{
+		final StringBuilder builder = new StringBuilder(path.length() + 1).append(SEPARATOR);
+		for (int i = 0; i < path.length(); i++)
+		{
+			final char c = path.charAt(i);
+			if (c != SEPARATOR || builder.charAt(builder.length() - 1) != SEPARATOR)
+			{
+				builder.append(c);
+			}
+		}
+		if (builder.length() > 1 && builder.charAt(builder.length() - 1) == SEPARATOR)
+		{
+			builder.setLength(builder.length() - 1);
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public String[] list(String directory)
+	{
+		simulate(Operation.LIST);
+		final Node node = lookup(directory);
+		return node instanceof Directory ? ((Directory) node).children.keySet().toArray(new String[0]) : null;
+	}
+
+	@Override
+	public boolean readAttributes(String path, FileAttributes attributes)
+	{
+		simulate(Operation.STAT);
+		final Node node = lookup(path);
+		if (node == null)
+		{
+			return false;
+		}
+		attributes.set(node.lastModified, node.size(), node instanceof Directory);
+		return true;
+	}
+
+	@Override
+	public FileInfo getFileInfo(String path) throws FileNotFoundException
+	{
+		simulate(Operation.STAT);
+		final Node node = lookup(path);
+		if (node == null)
+		{
+			throw new FileNotFoundException("Provided file is an invalid location.");
+		}
+		return new FileInfo(path, node.lastModified, node.size(), node instanceof Directory);
+	}
+
+	@Override
+	public FileInfo readFileInfo(String path)
+	{
+		simulate(Operation.STAT);
+		final Node node = lookup(path);
+		return node == null ? null : new FileInfo(path, node.lastModified, node.size(), node instanceof Directory);
+	}
+
+	@Override
+	public FileChannel open(String path) throws IOException
+	{
+		throw new IOException("The content is not held in memory: " + path);
+	}
+
+	@Override
+	public Object getFileKey(String path)
+	{
+		return lookup(path);
+	}
+
+	/**
+	 * Waits for the latency of the operation, if any.
+	 *
+	 * @param operation
+	 *            the operation
+	 */
+	private void simulate(Operation operation)
+	{
+		final LongSupplier latency = latencies.get(operation);
+		if (latency != null)
+		{
+			final long nanos = latency.getAsLong();
+			if (nanos > 0)
+			{
+				LockSupport.parkNanos(nanos);
+			}
+		}
+	}
+
+	/**
+	 * Looks up the node of the given absolute path.
+	 *
+	 * @param path
+	 *            the path
+	 * @return the node, null if not found
+	 */
+	private Node lookup(String path)
+	{
+		Node node = root;
+		int start = 1;
+		while (node != null && start < path.length())
+		{
+			if (!(node instanceof Directory))
+			{
+				return null;
+			}
+			int end = path.indexOf(SEPARATOR, start);
+			end = end == -1 ? path.length() : end;
+			node = ((Directory) node).children.get(path.substring(start, end));
+			start = end + 1;
+		}
+		return node;
+	}
+
+	/**
+	 * Gets the directory of the given absolute path.
+	 *
+	 * @param path
+	 *            the path
+	 * @param create
+	 *            whether the missing directories have to be created
+	 * @return the directory, null if not found and not created
+	 */
+	private Directory directory(String path, boolean create)
+	{
+		Directory directory = root;
+		int start = 1;
+		while (start < path.length())
+		{
+			int end = path.indexOf(SEPARATOR, start);
+			end = end == -1 ? path.length() : end;
+			final String name = path.substring(start, end);
+			Node node = directory.children.get(name);
+			if (node == null && create)
+			{
+				final long now = clock.getAsLong();
+				final Node created = new Directory(now);
+				node = directory.children.putIfAbsent(name, created);
+				if (node == null)
+				{
+					node = created;
+					directory.lastModified = now;
+				}
+			}
+			if (!(node instanceof Directory))
+			{
+				if (node != null && create)
+				{
+					throw new IllegalArgumentException("Not a directory: " + path.substring(0, end));
+				}
+				return null;
+			}
+			directory = (Directory) node;
+			start = end + 1;
+		}
+		return directory;
+	}
+
+	/**
+	 * A file or a directory.
+	 */
+	private abstract static class Node
+	{
+
+		/** The last modified. */
+		volatile long lastModified;
+
+		/**
+		 * Instantiates a new node.
+		 *
+		 * @param lastModified
+		 *            the last modified
+		 */
+		Node(long lastModified)
+		{
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * Gets the size.
+		 *
+		 * @return the size
+		 */
+		abstract long size();
+	}
+
+	/**
+	 * A regular file.
+	 */
+	private static final class Regular extends Node
+	{
+
+		/** The size. */
+		volatile long size;
+
+		/**
+		 * Instantiates a new regular file.
+		 *
+		 * @param lastModified
+		 *            the last modified
+		 * @param size
+		 *            the size
+		 */
+		Regular(long lastModified, long size)
+		{
+			super(lastModified);
+			this.size = size;
+		}
+
+		@Override
+		long size()
+		{
+			return size;
+		}
+	}
+
+	/**
+	 * A directory.
+	 */
+	private static final class Directory extends Node
+	{
+
+		/** The children, by their name. */
+		final Map<String, Node> children = new ConcurrentHashMap<>();
+
+		/**
+		 * Instantiates a new directory.
+		 *
+		 * @param lastModified
+		 *            the last modified
+		 */
+		Directory(long lastModified)
+		{
+			super(lastModified);
+		}
+
+		@Override
+		long size()
+		{
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * FileWatcher - LocalFileSystem.java, Oct 18, 2026 2:38:05 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.fs;
+
+import com.varra.filewatcher.info.FileInfo;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/**
+ * The {@link WatchedFileSystem} of the platform, backed by {@link File}.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+public final class LocalFileSystem implements WatchedFileSystem
+{
+
+	/** The instance. */
+	public static final LocalFileSystem INSTANCE = new LocalFileSystem();
+
+	/**
+	 * Instantiates a new local file system.
+	 */
+	private LocalFileSystem()
+	{
+	}
+
+	@Override
+	public String getAbsolutePath(String path)
+	{
+		return new File(path).getAbsolutePath();
+	}
+
+	@Override
+	public String[] list(String directory)
+	{
+		return new File(directory).list();
+	}
+
+	@Override
+	public boolean readAttributes(String path, FileAttributes attributes)
+	{
+		final File file = new File(path);
+		final long lastModified = file.lastModified();
+		// 0 is also what a vanished file reports.
+		if (lastModified == 0L && !file.exists())
+		{
+			return false;
+		}
+		final boolean directory = file.isDirectory();
+		attributes.set(lastModified, directory ? 0 : file.length(), directory);
+		return true;
+	}
+
+	@Override
+	public FileInfo getFileInfo(String path) throws FileNotFoundException
+	{
+		return new FileInfo(path);
+	}
+
+	@Override
+	public FileInfo readFileInfo(String path)
+	{
+		return FileInfo.read(path);
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * FileWatcher - WatchedFileSystem.java, Oct 18, 2026 2:24:52 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.fs;
+
+import com.varra.classification.InterfaceAudience;
+import com.varra.classification.InterfaceStability;
+import com.varra.filewatcher.info.FileInfo;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * The filesystem as seen by the watcher, all the listing and the attribute
+ * access of the scan goes through it. The paths are absolute and use the
+ * platform's name separator. {@link LocalFileSystem} is the default,
+ * {@link InMemoryFileSystem} simulates large trees and slow filesystems.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public interface WatchedFileSystem
+{
+
+	/**
+	 * Resolves the given path to the absolute, normalized path used as the
+	 * key of the file.
+	 *
+	 * @param path
+	 *            the path
+	 * @return the absolute path
+	 */
+	String getAbsolutePath(String path);
+
+	/**
+	 * Lists the names of the entries of the given directory.
+	 *
+	 * @param directory
+	 *            the absolute directory
+	 * @return the names, or null if not a directory or could not be listed
+	 */
+	String[] list(String directory);
+
+	/**
+	 * Reads the attributes of the given path in to the given holder.
+	 *
+	 * @param path
+	 *            the absolute path
+	 * @param attributes
+	 *            the attributes to fill in
+	 * @return true, if the file exists and the attributes are read
+	 */
+	boolean readAttributes(String path, FileAttributes attributes);
+
+	/**
+	 * Gets the full details of the given path, to be notified.
+	 *
+	 * @param path
+	 *            the absolute path
+	 * @return the file info
+	 * @throws FileNotFoundException
+	 *             if the file does not exist
+	 */
+	FileInfo getFileInfo(String path) throws FileNotFoundException;
+
+	/**
+	 * Reads the full details of the given path, without throwing when the
+	 * file does not exist, as is common for the files vanishing during a
+	 * scan.
+	 *
+	 * @param path
+	 *            the absolute path
+	 * @return the file info, null if the file does not exist
+	 */
+	default FileInfo readFileInfo(String path)
+	{
+		try
+		{
+			return getFileInfo(path);
+		}
+		catch (FileNotFoundException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Opens the given file to read its content, only the files of the
+	 * platform can be read by default.
+	 *
+	 * @param path
+	 *            the absolute path
+	 * @return the channel
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	default FileChannel open(String path) throws IOException
+	{
+		return FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+	}
+
+	/**
+	 * Gets the key that identifies the file itself regardless of its name,
+	 * e.g. the device and inode, to tell a file replaced under the same name.
+	 *
+	 * @param path
+	 *            the absolute path
+	 * @return the file key, null if not known
+	 */
+	default Object getFileKey(String path)
+	{
+		try
+		{
+			return Files.readAttributes(Paths.get(path), BasicFileAttributes.class).fileKey();
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * FileWatcher - FileEvent.java, Oct 18, 2026 9:58:41 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.info;
+
+import com.varra.classification.InterfaceAudience;
+import com.varra.classification.InterfaceStability;
+import com.varra.filewatcher.listener.WatchEventType;
+
+/**
+ * A change of a file or directory, as published to the subscribers of a
+ * {@link com.varra.filewatcher.WatchEventPublisher}.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class FileEvent
+{
+
+	/** The type. */
+	private final WatchEventType type;
+
+	/** The file info before the change, only for a modify. */
+	private final FileInfo oldFileInfo;
+
+	/** The file info, as of the change. */
+	private final FileInfo fileInfo;
+
+	/**
+	 * Instantiates a new file event.
+	 *
+	 * @param type
+	 *            the type
+	 * @param oldFileInfo
+	 *            the file info before the change, null unless a modify
+	 * @param fileInfo
+	 *            the file info
+	 */
+	public FileEvent(WatchEventType type, FileInfo oldFileInfo, FileInfo fileInfo)
+	{
+		this.type = type;
+		this.oldFileInfo = oldFileInfo;
+		this.fileInfo = fileInfo;
+	}
+
+	/**
+	 * Gets the type.
+	 *
+	 * @return the type
+	 */
+	public WatchEventType getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Gets the file info before the change.
+	 *
+	 * @return the old file info, null unless a modify
+	 */
+	public FileInfo getOldFileInfo()
+	{
+		return oldFileInfo;
+	}
+
+	/**
+	 * Gets the file info, as of the change; the last one when several
+	 * changes were coalesced.
+	 *
+	 * @return the file info
+	 */
+	public FileInfo getFileInfo()
+	{
+		return fileInfo;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		final StringBuilder builder = new StringBuilder();
+		builder.append("FileEvent [type=");
+		builder.append(type);
+		builder.append(", fileInfo=");
+		builder.append(fileInfo);
+		builder.append("]");
+		return builder.toString();
+	}
+}
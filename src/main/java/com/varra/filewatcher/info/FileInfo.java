@@ -66,6 +66,9 @@ public class FileInfo implements Serializable
 	/** The backup. */
 	private final boolean backup;
 	
+	/** The sequence of the event in the journal, 0 if not journaled. */
+	private final long sequence;
+	
 	/**
 	 * Instantiates a new file info.
 	 * 
@@ -75,14 +78,22 @@ public class FileInfo implements Serializable
 	 *             the file not found exception
 	 */
 	public FileInfo(String name) throws FileNotFoundException
+	{
+		this(name, existing(name));
+	}
+	
+	/**
+	 * Instantiates a new file info of the existing file.
+	 * 
+	 * @param name
+	 *            the name
+	 * @param file
+	 *            the file
+	 */
+	private FileInfo(String name, File file)
 	{
 		super();
 		
-		final File file = new File(name);
-		if (!file.exists())
-		{
-			throw new FileNotFoundException("Provided file is an invalid location.");
-		}
 		this.name = name;
 		this.canExecute = file.canExecute();
 		this.canRead = file.canRead();
@@ -93,7 +104,124 @@ public class FileInfo implements Serializable
 		this.parent = file.getParent();
 		this.shortName = file.getName();
 		this.size = file.length();
-		this.backup = name.endsWith("~") || name.toUpperCase().endsWith("BAK");
+		this.backup = isBackup(name);
+		this.sequence = 0;
+	}
+	
+	/**
+	 * Instantiates a new file info from the attributes already known to the
+	 * caller, without touching the filesystem. The permission and hidden flags
+	 * are not known and are reported as <code>false</code>.
+	 * 
+	 * @param name
+	 *            the absolute path
+	 * @param lastModified
+	 *            the last modified
+	 * @param size
+	 *            the size
+	 * @param directory
+	 *            the directory
+	 */
+	public FileInfo(String name, long lastModified, long size, boolean directory)
+	{
+		super();
+		
+		final File file = new File(name);
+		this.name = name;
+		this.canExecute = false;
+		this.canRead = false;
+		this.canWrite = false;
+		this.lastModified = lastModified;
+		this.directory = directory;
+		this.hidden = false;
+		this.parent = file.getParent();
+		this.shortName = file.getName();
+		this.size = size;
+		this.backup = isBackup(name);
+		this.sequence = 0;
+	}
+	
+	/**
+	 * Instantiates a copy of the given file info, as notified by the event
+	 * of the given sequence in the journal. Every journaled event gets its
+	 * own copy, so the sequence of a file info already notified never
+	 * changes.
+	 * 
+	 * @param fileInfo
+	 *            the file info
+	 * @param sequence
+	 *            the sequence
+	 */
+	public FileInfo(FileInfo fileInfo, long sequence)
+	{
+		super();
+		
+		this.name = fileInfo.name;
+		this.owner = fileInfo.owner;
+		this.canExecute = fileInfo.canExecute;
+		this.canRead = fileInfo.canRead;
+		this.canWrite = fileInfo.canWrite;
+		this.lastModified = fileInfo.lastModified;
+		this.directory = fileInfo.directory;
+		this.hidden = fileInfo.hidden;
+		this.parent = fileInfo.parent;
+		this.shortName = fileInfo.shortName;
+		this.size = fileInfo.size;
+		this.backup = fileInfo.backup;
+		this.sequence = sequence;
+	}
+	
+	/**
+	 * Reads the file info of the given file, without throwing if it does not
+	 * exist.
+	 * 
+	 * @param name
+	 *            the name
+	 * @return the file info, null if the file does not exist
+	 */
+	public static FileInfo read(String name)
+	{
+		final File file = new File(name);
+		if (!file.exists())
+		{
+			return null;
+		}
+		final FileInfo fileInfo = new FileInfo(name, file);
+		// 0 is also what a file vanished meanwhile reports.
+		return fileInfo.lastModified != 0L || file.exists() ? fileInfo : null;
+	}
+	
+	/**
+	 * Gets the file of the given name, checking it exists.
+	 * 
+	 * @param name
+	 *            the name
+	 * @return the file
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	private static File existing(String name) throws FileNotFoundException
+	{
+		final File file = new File(name);
+		if (!file.exists())
+		{
+			throw new FileNotFoundException("Provided file is an invalid location.");
+		}
+		return file;
+	}
+	
+	/**
+	 * Checks if the given path names a backup file, i.e. ends with
+	 * <code>~</code> or <code>BAK</code> (case insensitive). Does not allocate.
+	 * 
+	 * @param name
+	 *            the path
+	 * @return true, if is backup
+	 */
+	public static boolean isBackup(String name)
+	{
+		final int length = name.length();
+		return name.endsWith("~") || (length >= 3 && name.regionMatches(true, length - 3, "BAK", 0, 3));
 	}
 	
 	/**
@@ -266,6 +394,18 @@ public class FileInfo implements Serializable
 		return backup;
 	}
 	
+	/**
+	 * Gets the sequence of the event notifying this file in the journal, a
+	 * listener resumes its replay from the one following the last it
+	 * processed.
+	 * 
+	 * @return the sequence, 0 if not journaled
+	 */
+	public long getSequence()
+	{
+		return sequence;
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -0,0 +1,113 @@
+/*
+ * FileWatcher - SubtreeInfo.java, Oct 18, 2026 7:02:26 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.info;
+
+import com.varra.classification.InterfaceAudience;
+import com.varra.classification.InterfaceStability;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A whole directory tree that appeared or disappeared in a single scan,
+ * notified as one event instead of one per file.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class SubtreeInfo
+{
+
+	/** The top directory. */
+	private final FileInfo directory;
+
+	/** The entries under the directory, at any depth. */
+	private final Iterable<FileInfo> entries;
+
+	/** The number of entries. */
+	private final int entryCount;
+
+	/**
+	 * Instantiates a new subtree info.
+	 *
+	 * @param directory
+	 *            the top directory
+	 * @param entries
+	 *            the entries under the directory
+	 */
+	public SubtreeInfo(FileInfo directory, List<FileInfo> entries)
+	{
+		this(directory, Collections.unmodifiableList(entries), entries.size());
+	}
+
+	/**
+	 * Instantiates a new subtree info whose entries are walked only when
+	 * iterated, each time they are.
+	 *
+	 * @param directory
+	 *            the top directory
+	 * @param entries
+	 *            the entries under the directory, not to be removed through
+	 *            their iterator
+	 * @param entryCount
+	 *            the number of entries
+	 */
+	public SubtreeInfo(FileInfo directory, Iterable<FileInfo> entries, int entryCount)
+	{
+		this.directory = directory;
+		this.entries = entries;
+		this.entryCount = entryCount;
+	}
+
+	/**
+	 * Gets the top directory.
+	 *
+	 * @return the directory
+	 */
+	public FileInfo getDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Gets the number of files and directories under the directory.
+	 *
+	 * @return the entry count
+	 */
+	public int getEntryCount()
+	{
+		return entryCount;
+	}
+
+	/**
+	 * Gets the files and directories under the directory, at any depth and
+	 * in no particular order; only walk them when needed.
+	 *
+	 * @return the entries
+	 */
+	public Iterable<FileInfo> getEntries()
+	{
+		return entries;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		final StringBuilder builder = new StringBuilder();
+		builder.append("SubtreeInfo [directory=");
+		builder.append(directory.getAbsolutePath());
+		builder.append(", entryCount=");
+		builder.append(getEntryCount());
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,438 @@
+/*
+ * FileWatcher - EventJournal.java, Oct 18, 2026 5:10:44 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.journal;
+
+import com.varra.classification.InterfaceAudience;
+import com.varra.classification.InterfaceStability;
+import com.varra.filewatcher.info.FileInfo;
+import com.varra.filewatcher.listener.WatchEventType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * The durable, append only journal of the events notified by the watcher.
+ * Every event gets the next sequence number, its offset in the journal, and
+ * is appended to the active segment, a memory mapped file of a fixed size
+ * named after the sequence of its first record. The appends are made
+ * durable by {@link #commit()}, once for the whole group of events of a
+ * scan. A consumer catches up by replaying the journal from the offset it
+ * last processed.
+ * <p>
+ * The segments are deleted oldest first, on every commit, once they are
+ * beyond the retention size or age; with a retention age, the active segment
+ * is also rolled once that old, so the records of a quiet journal expire too,
+ * at most twice the age after being appended. A torn record at the end of the
+ * journal, left by a crash, fails its checksum and is dropped on opening.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class EventJournal implements Closeable
+{
+
+	/** The suffix of the segments. */
+	private static final String SUFFIX = ".journal";
+
+	/** The default segment size. */
+	private static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+
+	/**
+	 * The fixed part of a record: the length, the sequence, the timestamp,
+	 * the size, the last modified, the type, the directory, the path length
+	 * and the checksum.
+	 */
+	private static final int RECORD_OVERHEAD = 4 + 8 + 8 + 8 + 8 + 1 + 1 + 4 + 4;
+
+	/** The event types, by their ordinal. */
+	private static final WatchEventType[] TYPES = WatchEventType.values();
+
+	/** The directory of the segments. */
+	private final Path directory;
+
+	/** The size of a segment. */
+	private final int segmentBytes;
+
+	/** The total size of the segments retained, 0 for no limit. */
+	private final long retentionBytes;
+
+	/** The age of the segments retained in milli seconds, 0 for no limit. */
+	private final long retentionMillis;
+
+	/** The segments, by the sequence of their first record. */
+	private final NavigableMap<Long, Path> segments = new TreeMap<>();
+
+	/** The checksum, reused. */
+	private final CRC32 crc = new CRC32();
+
+	/** The channel of the active segment. */
+	private FileChannel channel;
+
+	/** The active segment, positioned at the end of its records. */
+	private MappedByteBuffer buffer;
+
+	/** The sequence of the next record. */
+	private long nextSequence = 1;
+
+	/** Whether there are appends not committed yet. */
+	private boolean dirty;
+
+	/** The time the active segment was opened. */
+	private long activeSince;
+
+	/**
+	 * Opens the journal in the given directory, with 64 MB segments retained
+	 * for ever.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public EventJournal(Path directory) throws IOException
+	{
+		this(directory, DEFAULT_SEGMENT_BYTES, 0, 0);
+	}
+
+	/**
+	 * Opens the journal in the given directory, recovering the records
+	 * already in it.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @param segmentBytes
+	 *            the size of a segment
+	 * @param retentionBytes
+	 *            the total size of the segments retained, 0 for no limit
+	 * @param retentionMillis
+	 *            the age of the segments retained, 0 for no limit
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public EventJournal(Path directory, int segmentBytes, long retentionBytes, long retentionMillis)
+			throws IOException
+	{
+		this.directory = Files.createDirectories(directory);
+		this.segmentBytes = segmentBytes;
+		this.retentionBytes = retentionBytes;
+		this.retentionMillis = retentionMillis;
+		try (Stream<Path> files = Files.list(directory))
+		{
+			files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+					.forEach(file -> segments.put(baseOf(file), file));
+		}
+		if (segments.isEmpty())
+		{
+			roll();
+		}
+		else
+		{
+			final Entry<Long, Path> last = segments.lastEntry();
+			nextSequence = last.getKey();
+			open(last.getValue());
+			while (read(buffer, null))
+			{
+				nextSequence++;
+			}
+		}
+	}
+
+	/**
+	 * Appends the event, it is durable only once committed.
+	 *
+	 * @param type
+	 *            the type
+	 * @param fileInfo
+	 *            the file info
+	 * @return the sequence of the event
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public synchronized long append(WatchEventType type, FileInfo fileInfo) throws IOException
+	{
+		final byte[] path = fileInfo.getAbsolutePath().getBytes(StandardCharsets.UTF_8);
+		final int length = RECORD_OVERHEAD + path.length;
+		if (length > segmentBytes)
+		{
+			throw new IOException("Record of " + length + " bytes does not fit a segment: " + fileInfo);
+		}
+		if (buffer.remaining() < length + 4)
+		{
+			// Room is left for the 0 length that ends the records.
+			roll();
+		}
+		final int start = buffer.position();
+		buffer.putInt(length - 4);
+		buffer.putLong(nextSequence);
+		buffer.putLong(System.currentTimeMillis());
+		buffer.putLong(fileInfo.getSize());
+		buffer.putLong(fileInfo.lastModified());
+		buffer.put((byte) type.ordinal());
+		buffer.put((byte) (fileInfo.isDirectory() ? 1 : 0));
+		buffer.putInt(path.length);
+		buffer.put(path);
+		crc.reset();
+		final ByteBuffer record = buffer.duplicate();
+		record.position(start + 4).limit(buffer.position());
+		crc.update(record);
+		buffer.putInt((int) crc.getValue());
+		if (buffer.remaining() >= 4)
+		{
+			// Ends the records, over whatever a torn record left there.
+			buffer.putInt(buffer.position(), 0);
+		}
+		dirty = true;
+		return nextSequence++;
+	}
+
+	/**
+	 * Makes the appends so far durable, with a single sync for all of them,
+	 * and applies the retention.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public synchronized void commit() throws IOException
+	{
+		force();
+		if (retentionMillis > 0 && buffer.position() > 0
+				&& System.currentTimeMillis() - activeSince >= retentionMillis)
+		{
+			roll();
+		}
+		else
+		{
+			retain();
+		}
+	}
+
+	/**
+	 * Replays the records from the given sequence on, in order. The records
+	 * no longer retained are skipped, the first one replayed tells where the
+	 * journal starts.
+	 *
+	 * @param fromSequence
+	 *            the sequence of the first record wanted
+	 * @param consumer
+	 *            the consumer
+	 * @return the sequence following the last record replayed
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public synchronized long replay(long fromSequence, Consumer<JournalRecord> consumer) throws IOException
+	{
+		final Long floor = segments.floorKey(fromSequence);
+		final Consumer<JournalRecord> filter = record -> {
+			if (record.getSequence() >= fromSequence)
+			{
+				consumer.accept(record);
+			}
+		};
+		for (Entry<Long, Path> segment : segments.tailMap(floor == null ? segments.firstKey() : floor, true)
+				.entrySet())
+		{
+			final ByteBuffer records;
+			if (segment.getKey().equals(segments.lastKey()))
+			{
+				records = buffer.duplicate();
+				records.flip();
+			}
+			else
+			{
+				try (FileChannel file = FileChannel.open(segment.getValue(), StandardOpenOption.READ))
+				{
+					records = file.map(MapMode.READ_ONLY, 0, file.size());
+				}
+			}
+			while (read(records, filter))
+			{
+				// Replays up to the end of the segment.
+			}
+		}
+		return nextSequence;
+	}
+
+	/**
+	 * Gets the sequence the next event will get.
+	 *
+	 * @return the next sequence
+	 */
+	public synchronized long getNextSequence()
+	{
+		return nextSequence;
+	}
+
+	/**
+	 * Gets the sequence of the oldest record retained.
+	 *
+	 * @return the first sequence
+	 */
+	public synchronized long getFirstSequence()
+	{
+		return segments.firstKey();
+	}
+
+	/**
+	 * Commits and closes the journal.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		force();
+		channel.close();
+	}
+
+	/**
+	 * Syncs the appends not committed yet.
+	 */
+	private void force()
+	{
+		if (dirty)
+		{
+			buffer.force();
+			dirty = false;
+		}
+	}
+
+	/**
+	 * Reads the record at the position of the buffer, advancing past it.
+	 *
+	 * @param records
+	 *            the records
+	 * @param consumer
+	 *            the consumer of the record, null to only skip it
+	 * @return true, if a valid record was read
+	 */
+	private boolean read(ByteBuffer records, Consumer<JournalRecord> consumer)
+	{
+		final int start = records.position();
+		if (records.remaining() < RECORD_OVERHEAD)
+		{
+			return false;
+		}
+		final int length = records.getInt(start);
+		if (length < RECORD_OVERHEAD - 4 || length > records.remaining() - 4)
+		{
+			return false;
+		}
+		crc.reset();
+		final ByteBuffer body = records.duplicate();
+		body.position(start + 4).limit(start + length);
+		crc.update(body);
+		if ((int) crc.getValue() != records.getInt(start + length))
+		{
+			return false;
+		}
+		records.position(start + 4);
+		final long sequence = records.getLong();
+		final long timestamp = records.getLong();
+		final long size = records.getLong();
+		final long lastModified = records.getLong();
+		final WatchEventType type = TYPES[records.get()];
+		final boolean isDirectory = records.get() == 1;
+		final byte[] path = new byte[records.getInt()];
+		records.get(path);
+		records.position(start + 4 + length);
+		if (consumer != null)
+		{
+			consumer.accept(new JournalRecord(sequence, timestamp, type, new String(path, StandardCharsets.UTF_8),
+					size, lastModified, isDirectory));
+		}
+		return true;
+	}
+
+	/**
+	 * Rolls to a new segment, starting at the next sequence, and applies the
+	 * retention to the older ones.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void roll() throws IOException
+	{
+		if (channel != null)
+		{
+			buffer.force();
+			channel.close();
+		}
+		final Path segment = directory.resolve(String.format("%020d%s", nextSequence, SUFFIX));
+		segments.put(nextSequence, segment);
+		open(segment);
+		retain();
+	}
+
+	/**
+	 * Maps the given segment as the active one.
+	 *
+	 * @param segment
+	 *            the segment
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void open(Path segment) throws IOException
+	{
+		channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		buffer = channel.map(MapMode.READ_WRITE, 0, Math.max(segmentBytes, channel.size()));
+		activeSince = System.currentTimeMillis();
+	}
+
+	/**
+	 * Deletes the oldest segments beyond the retention, never the active one.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void retain() throws IOException
+	{
+		final long expiredAt = System.currentTimeMillis() - retentionMillis;
+		while (segments.size() > 1)
+		{
+			final Path oldest = segments.firstEntry().getValue();
+			final boolean tooLarge = retentionBytes > 0 && (long) segments.size() * segmentBytes > retentionBytes;
+			final boolean tooOld = retentionMillis > 0 && Files.getLastModifiedTime(oldest).toMillis() < expiredAt;
+			if (!tooLarge && !tooOld)
+			{
+				return;
+			}
+			Files.deleteIfExists(oldest);
+			segments.pollFirstEntry();
+		}
+	}
+
+	/**
+	 * Gets the sequence of the first record of the segment from its name.
+	 *
+	 * @param segment
+	 *            the segment
+	 * @return the sequence
+	 */
+	private static long baseOf(Path segment)
+	{
+		final String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+	}
+}
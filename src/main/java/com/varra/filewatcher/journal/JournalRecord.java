@@ -0,0 +1,181 @@
+/*
+ * FileWatcher - JournalRecord.java, Oct 18, 2026 5:02:19 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.journal;
+
+import com.varra.classification.InterfaceAudience;
+import com.varra.classification.InterfaceStability;
+import com.varra.filewatcher.info.FileInfo;
+import com.varra.filewatcher.listener.WatchEventType;
+
+/**
+ * An event as recorded in the {@link EventJournal}.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class JournalRecord
+{
+
+	/** The sequence, the offset of the record in the journal. */
+	private final long sequence;
+
+	/** The time the event was recorded, in milli seconds. */
+	private final long timestamp;
+
+	/** The type. */
+	private final WatchEventType type;
+
+	/** The absolute path. */
+	private final String path;
+
+	/** The size. */
+	private final long size;
+
+	/** The last modified. */
+	private final long lastModified;
+
+	/** The directory. */
+	private final boolean directory;
+
+	/**
+	 * Instantiates a new journal record.
+	 *
+	 * @param sequence
+	 *            the sequence
+	 * @param timestamp
+	 *            the timestamp
+	 * @param type
+	 *            the type
+	 * @param path
+	 *            the path
+	 * @param size
+	 *            the size
+	 * @param lastModified
+	 *            the last modified
+	 * @param directory
+	 *            the directory
+	 */
+	JournalRecord(long sequence, long timestamp, WatchEventType type, String path, long size, long lastModified,
+			boolean directory)
+	{
+		this.sequence = sequence;
+		this.timestamp = timestamp;
+		this.type = type;
+		this.path = path;
+		this.size = size;
+		this.lastModified = lastModified;
+		this.directory = directory;
+	}
+
+	/**
+	 * Gets the sequence, the offset of the record in the journal.
+	 *
+	 * @return the sequence
+	 */
+	public long getSequence()
+	{
+		return sequence;
+	}
+
+	/**
+	 * Gets the time the event was recorded.
+	 *
+	 * @return the timestamp in milli seconds
+	 */
+	public long getTimestamp()
+	{
+		return timestamp;
+	}
+
+	/**
+	 * Gets the type.
+	 *
+	 * @return the type
+	 */
+	public WatchEventType getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Gets the absolute path.
+	 *
+	 * @return the path
+	 */
+	public String getPath()
+	{
+		return path;
+	}
+
+	/**
+	 * Gets the size.
+	 *
+	 * @return the size
+	 */
+	public long getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Gets the last modified.
+	 *
+	 * @return the lastModified
+	 */
+	public long lastModified()
+	{
+		return lastModified;
+	}
+
+	/**
+	 * Checks if is the directory.
+	 *
+	 * @return the directory
+	 */
+	public boolean isDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Gets the file info of the event, with the attributes and the sequence
+	 * recorded.
+	 *
+	 * @return the file info
+	 */
+	public FileInfo toFileInfo()
+	{
+		return new FileInfo(new FileInfo(path, lastModified, size, directory), sequence);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		final StringBuilder builder = new StringBuilder();
+		builder.append("JournalRecord [sequence=");
+		builder.append(sequence);
+		builder.append(", timestamp=");
+		builder.append(timestamp);
+		builder.append(", type=");
+		builder.append(type);
+		builder.append(", path=");
+		builder.append(path);
+		builder.append(", size=");
+		builder.append(size);
+		builder.append(", lastModified=");
+		builder.append(lastModified);
+		builder.append(", directory=");
+		builder.append(directory);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * FileWatcher - BaselineProgressListener.java, Oct 18, 2026 12:02:31 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.listener;
+
+/**
+ * The Interface that reports the progress of the initial indexing of the
+ * registered directories, invoked on the watcher's thread once per scan while
+ * a directory is being indexed and once when it is done.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface BaselineProgressListener
+{
+
+	/**
+	 * On progress.
+	 *
+	 * @param directory
+	 *            the registered directory being indexed
+	 * @param indexed
+	 *            the number of files and directories indexed so far
+	 * @param done
+	 *            whether the directory is fully indexed and is being watched
+	 */
+	void onProgress(String directory, long indexed, boolean done);
+}
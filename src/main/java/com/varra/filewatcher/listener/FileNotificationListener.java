@@ -7,6 +7,7 @@
 package com.varra.filewatcher.listener;
 
 import com.varra.filewatcher.info.FileInfo;
+import com.varra.filewatcher.info.SubtreeInfo;
 
 import static com.varra.filewatcher.listener.WatchEventType.*;
 
@@ -75,4 +76,52 @@ public interface FileNotificationListener
 	 *            the file info
 	 */
 	default void onDeleteDirectory(FileInfo fileInfo) {this.onWatchEvent(DELETE, fileInfo);};
+	
+	/**
+	 * On create subtree, only when registered with a mask that aggregates
+	 * the subtrees. The subtree holds only the entries the mask matches.
+	 * Notifies the directory and each entry by default.
+	 * 
+	 * @param subtree
+	 *            the subtree
+	 */
+	default void onCreateSubtree(SubtreeInfo subtree)
+	{
+		onCreateDirectory(subtree.getDirectory());
+		for (FileInfo fileInfo : subtree.getEntries())
+		{
+			if (fileInfo.isDirectory())
+			{
+				onCreateDirectory(fileInfo);
+			}
+			else
+			{
+				onCreateFile(fileInfo);
+			}
+		}
+	}
+	
+	/**
+	 * On delete subtree, only when registered with a mask that aggregates
+	 * the subtrees. The subtree holds only the entries the mask matches.
+	 * Notifies each entry and the directory by default.
+	 * 
+	 * @param subtree
+	 *            the subtree
+	 */
+	default void onDeleteSubtree(SubtreeInfo subtree)
+	{
+		for (FileInfo fileInfo : subtree.getEntries())
+		{
+			if (fileInfo.isDirectory())
+			{
+				onDeleteDirectory(fileInfo);
+			}
+			else
+			{
+				onDeleteFile(fileInfo);
+			}
+		}
+		onDeleteDirectory(subtree.getDirectory());
+	}
 }
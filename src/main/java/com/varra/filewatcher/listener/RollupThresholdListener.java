@@ -0,0 +1,33 @@
+/*
+ * FileWatcher - RollupThresholdListener.java, Oct 18, 2026 8:36:50 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.listener;
+
+import com.varra.filewatcher.DirectoryRollup;
+
+/**
+ * The Interface that is notified when the totals of a directory cross the
+ * thresholds it was registered with, once when exceeded and once when back
+ * within them.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface RollupThresholdListener
+{
+
+	/**
+	 * On threshold crossed.
+	 *
+	 * @param rollup
+	 *            the totals of the directory
+	 * @param exceeded
+	 *            whether the thresholds are now exceeded, false if back
+	 *            within them
+	 */
+	void onThreshold(DirectoryRollup rollup, boolean exceeded);
+}
@@ -0,0 +1,197 @@
+/*
+ * FileWatcher - SubscriptionMask.java, Oct 18, 2026 1:14:09 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.listener;
+
+import com.varra.classification.InterfaceAudience;
+import com.varra.classification.InterfaceStability;
+import com.varra.filewatcher.info.FileInfo;
+import lombok.Builder;
+import lombok.Singular;
+
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * The events a listener is subscribed to, given at the registration. The
+ * mask is compiled once, and is evaluated once per event before the listener
+ * is invoked, so a listener never sees an event it is not interested in. An
+ * empty criterion matches everything:
+ *
+ * <pre>
+ * SubscriptionMask.builder().eventType(CREATE).excludeDirectories(true).extension("pdf").build()
+ * </pre>
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class SubscriptionMask
+{
+
+	/** The mask that matches every event. */
+	public static final SubscriptionMask ALL = builder().build();
+
+	/** The bits of the event types subscribed to, by their ordinal. */
+	private final int eventTypes;
+
+	/** Whether the events of the files are excluded. */
+	private final boolean excludeFiles;
+
+	/** Whether the events of the directories are excluded. */
+	private final boolean excludeDirectories;
+
+	/** The extensions, with the leading dot. */
+	private final String[] extensions;
+
+	/** The name patterns. */
+	private final PathMatcher[] namePatterns;
+
+	/** The minimum size of the files, does not apply to the directories. */
+	private final long minSize;
+
+	/** Whether the trees created or deleted at once are notified as one. */
+	private final boolean aggregateSubtrees;
+
+	/**
+	 * Instantiates a new subscription mask.
+	 *
+	 * @param eventTypes
+	 *            the event types, all if empty
+	 * @param excludeFiles
+	 *            whether the events of the files are excluded
+	 * @param excludeDirectories
+	 *            whether the events of the directories are excluded
+	 * @param extensions
+	 *            the file name extensions, case insensitive and without the
+	 *            dot, any if empty
+	 * @param namePatterns
+	 *            the glob patterns of the file name, any if empty
+	 * @param minSize
+	 *            the minimum size of the files
+	 * @param aggregateSubtrees
+	 *            whether a directory tree created or deleted within a scan
+	 *            is notified as a single subtree event, holding only the
+	 *            entries the mask matches; a tree whose top directory the
+	 *            mask does not match is notified entry by entry
+	 */
+	@Builder
+	private SubscriptionMask(@Singular Collection<WatchEventType> eventTypes, boolean excludeFiles,
+			boolean excludeDirectories, @Singular Collection<String> extensions,
+			@Singular Collection<String> namePatterns, long minSize, boolean aggregateSubtrees)
+	{
+		int bits = 0;
+		for (WatchEventType type : eventTypes)
+		{
+			bits |= 1 << type.ordinal();
+		}
+		this.eventTypes = bits == 0 ? ~0 : bits;
+		this.excludeFiles = excludeFiles;
+		this.excludeDirectories = excludeDirectories;
+		this.extensions = extensions.stream().map(extension -> extension.startsWith(".") ? extension : "." + extension)
+				.map(extension -> extension.toLowerCase(Locale.ROOT)).toArray(String[]::new);
+		this.namePatterns = namePatterns.stream().map(pattern -> FileSystems.getDefault().getPathMatcher("glob:" + pattern))
+				.toArray(PathMatcher[]::new);
+		this.minSize = minSize;
+		this.aggregateSubtrees = aggregateSubtrees;
+	}
+
+	/**
+	 * Checks if the event type is subscribed to.
+	 *
+	 * @param type
+	 *            the type
+	 * @return true, if subscribed
+	 */
+	public boolean isSubscribed(WatchEventType type)
+	{
+		return (eventTypes & (1 << type.ordinal())) != 0;
+	}
+
+	/**
+	 * Checks if the trees created or deleted at once are notified as one
+	 * subtree event.
+	 *
+	 * @return the aggregateSubtrees
+	 */
+	public boolean isAggregateSubtrees()
+	{
+		return aggregateSubtrees;
+	}
+
+	/**
+	 * Checks if the event is subscribed to.
+	 *
+	 * @param type
+	 *            the type
+	 * @param fileInfo
+	 *            the file info
+	 * @return true, if matches
+	 */
+	public boolean matches(WatchEventType type, FileInfo fileInfo)
+	{
+		if (!isSubscribed(type))
+		{
+			return false;
+		}
+		if (fileInfo.isDirectory())
+		{
+			return !excludeDirectories && matchesName(fileInfo.getName());
+		}
+		return !excludeFiles && fileInfo.getSize() >= minSize && matchesName(fileInfo.getName());
+	}
+
+	/**
+	 * Checks if the name matches the extensions and the patterns.
+	 *
+	 * @param name
+	 *            the name
+	 * @return true, if matches
+	 */
+	private boolean matchesName(String name)
+	{
+		if (extensions.length > 0 && !hasExtension(name))
+		{
+			return false;
+		}
+		if (namePatterns.length > 0)
+		{
+			for (PathMatcher pattern : namePatterns)
+			{
+				if (pattern.matches(Paths.get(name)))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the name ends with any of the extensions, without allocating.
+	 *
+	 * @param name
+	 *            the name
+	 * @return true, if found
+	 */
+	private boolean hasExtension(String name)
+	{
+		for (String extension : extensions)
+		{
+			final int offset = name.length() - extension.length();
+			if (offset >= 0 && name.regionMatches(true, offset, extension, 0, extension.length()))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * FileWatcher - TailListener.java, Oct 18, 2026 6:04:17 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.listener;
+
+import com.varra.filewatcher.info.FileInfo;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The Interface that receives only the bytes appended to the growing files,
+ * e.g. logs, instead of re-reading them on every modification. The appends of
+ * a file are delivered in order, each exactly once, from where the previous
+ * one ended.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface TailListener
+{
+
+	/**
+	 * On append.
+	 *
+	 * @param fileInfo
+	 *            the file info
+	 * @param appended
+	 *            the bytes appended, a read only buffer mapped on the file,
+	 *            valid only until the call returns
+	 * @param position
+	 *            the position of the bytes in the file
+	 */
+	void onAppend(FileInfo fileInfo, ByteBuffer appended, long position);
+
+	/**
+	 * On rotate, the file was truncated or replaced by another one, the
+	 * following appends are delivered from its start.
+	 *
+	 * @param fileInfo
+	 *            the file info
+	 */
+	default void onRotate(FileInfo fileInfo)
+	{
+	}
+}
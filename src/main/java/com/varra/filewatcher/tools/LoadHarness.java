@@ -0,0 +1,633 @@
+/*
+ * FileWatcher - LoadHarness.java, Oct 18, 2026 4:12:37 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.tools;
+
+import com.varra.filewatcher.FileWatcher;
+import com.varra.filewatcher.WatcherMetrics;
+import com.varra.filewatcher.info.FileInfo;
+import com.varra.filewatcher.listener.FileNotificationListener;
+import com.varra.filewatcher.listener.SubscriptionMask;
+import com.varra.filewatcher.listener.WatchEventType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.varra.filewatcher.listener.WatchEventType.CREATE;
+import static com.varra.filewatcher.listener.WatchEventType.DELETE;
+import static com.varra.filewatcher.listener.WatchEventType.MODIFY;
+
+/**
+ * The load harness of the {@link FileWatcher}: generates a churn of creates,
+ * modifies, deletes and renames in to a tree while a watcher runs on it, and
+ * reports the latency from every change on the disk to its notification,
+ * along with the missed and duplicate events and the scan overruns.
+ *
+ * <pre>
+ * java -cp ... com.varra.filewatcher.tools.LoadHarness --dir=/tmp/load --duration=60 --rate=200 --burst=20 \
+ *         --mix=40,40,10,10 --size=512,65536 --depth=3 --fanout=4 --initial=10000 --interval=500
+ * </pre>
+ *
+ * The options are:
+ * <ul>
+ * <li><b>dir</b>: the tree to churn, a temporary directory by default, it is
+ * cleaned up only when temporary.</li>
+ * <li><b>duration</b>: the seconds of churn, 30 by default.</li>
+ * <li><b>rate</b>: the operations per second, 100 by default.</li>
+ * <li><b>burst</b>: the operations done back to back, 1 by default.</li>
+ * <li><b>mix</b>: the weights of create, modify, delete and rename,
+ * 40,40,10,10 by default.</li>
+ * <li><b>size</b>: the minimum and maximum bytes written by a create or a
+ * modify, 128,4096 by default.</li>
+ * <li><b>depth</b>, <b>fanout</b>: the shape of the directory tree, 2 and 4
+ * by default.</li>
+ * <li><b>initial</b>: the files created before the watcher starts, 1000 by
+ * default.</li>
+ * <li><b>interval</b>, <b>streaming</b>, <b>dispatchThreads</b>: the
+ * settings of the watcher, 500, false and 0 by default.</li>
+ * <li><b>drain</b>: the seconds to wait for the last events, 5 intervals by
+ * default.</li>
+ * </ul>
+ *
+ * Several changes of a file within a single scan reach the listeners as one
+ * event, the net change; a change that is undone before the next scan, such
+ * as a create followed by a delete, is expected to be not notified at all
+ * and is reported as coalesced. The latency of an event is measured from the
+ * earliest change it covers. A file changed again while a scan is reading it
+ * may have both changes attributed to that scan's event, and then shows up
+ * as a single duplicate at the next scan.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ *
+ */
+public final class LoadHarness implements FileNotificationListener
+{
+
+	/** The options. */
+	private final Map<String, String> options;
+
+	/** The random. */
+	private final Random random = new Random(42);
+
+	/** The leaf directories of the tree. */
+	private final List<Path> directories = new ArrayList<>();
+
+	/** The files known to exist, to pick the targets of the operations. */
+	private final List<Path> files = new ArrayList<>();
+
+	/** The state of the paths, guarded by itself. */
+	private final Map<Path, PathState> states = new HashMap<>();
+
+	/** The latencies in nano seconds, guarded by {@link #states}. */
+	private final List<Long> latencies = new ArrayList<>();
+
+	/** The operations done, by their kind. */
+	private final long[] operations = new long[4];
+
+	/** The duplicate events, guarded by {@link #states}. */
+	private long duplicates;
+
+	/** The events of an unexpected type, guarded by {@link #states}. */
+	private long mismatches;
+
+	/** The sequence of the names of the files. */
+	private long sequence;
+
+	/**
+	 * Instantiates a new load harness.
+	 *
+	 * @param options
+	 *            the options
+	 */
+	private LoadHarness(Map<String, String> options)
+	{
+		this.options = options;
+	}
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the options, as --name=value
+	 * @throws Exception
+	 *             the exception
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		final Map<String, String> options = new HashMap<>();
+		for (String arg : args)
+		{
+			final int index = arg.indexOf('=');
+			if (!arg.startsWith("--") || index == -1)
+			{
+				throw new IllegalArgumentException("Expected --name=value, found: " + arg);
+			}
+			options.put(arg.substring(2, index), arg.substring(index + 1));
+		}
+		new LoadHarness(options).run();
+	}
+
+	/**
+	 * Runs the load and prints the report.
+	 *
+	 * @throws Exception
+	 *             the exception
+	 */
+	private void run() throws Exception
+	{
+		final boolean temporary = !options.containsKey("dir");
+		final Path root = temporary ? Files.createTempDirectory("load-harness")
+				: Files.createDirectories(Paths.get(options.get("dir")));
+		final long interval = longOption("interval", 500);
+		try
+		{
+			createTree(root, (int) longOption("depth", 2), (int) longOption("fanout", 4));
+			final long initial = longOption("initial", 1000);
+			for (long i = 0; i < initial; i++)
+			{
+				create(false);
+			}
+
+			final FileWatcher watcher = FileWatcher.builder().interval(interval)
+					.streamingNotification(Boolean.parseBoolean(options.getOrDefault("streaming", "false")))
+					.dispatchThreads((int) longOption("dispatchThreads", 0)).build()
+					.registerListener(this, root.toString(), SubscriptionMask.builder().excludeDirectories(true).build())
+					.start();
+			watcher.ready().get();
+			System.out.printf("Ready, churning %s for %d seconds%n", root, longOption("duration", 30));
+
+			churn();
+			TimeUnit.MILLISECONDS.sleep(longOption("drain", 0) > 0 ? longOption("drain", 0) * 1000 : interval * 5);
+			final WatcherMetrics metrics = watcher.getMetrics();
+			watcher.shutdown();
+			report(metrics);
+		}
+		finally
+		{
+			if (temporary)
+			{
+				try (Stream<Path> paths = Files.walk(root))
+				{
+					paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the directories of the tree.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @param depth
+	 *            the remaining depth
+	 * @param fanout
+	 *            the fanout
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void createTree(Path directory, int depth, int fanout) throws IOException
+	{
+		if (depth == 0)
+		{
+			directories.add(directory);
+			return;
+		}
+		for (int i = 0; i < fanout; i++)
+		{
+			createTree(Files.createDirectories(directory.resolve("d" + i)), depth - 1, fanout);
+		}
+	}
+
+	/**
+	 * Does the operations at the rate, in bursts, for the duration.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	private void churn() throws IOException, InterruptedException
+	{
+		final long[] mix = Arrays.stream(options.getOrDefault("mix", "40,40,10,10").split(","))
+				.mapToLong(Long::parseLong).toArray();
+		final long total = Arrays.stream(mix).sum();
+		final long rate = longOption("rate", 100);
+		final int burst = (int) longOption("burst", 1);
+		final long pause = TimeUnit.SECONDS.toNanos(1) * burst / rate;
+		final long endAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(longOption("duration", 30));
+		long nextAt = System.nanoTime();
+		while (nextAt < endAt)
+		{
+			for (int i = 0; i < burst; i++)
+			{
+				long pick = (long) (random.nextDouble() * total);
+				int kind = 0;
+				while (pick >= mix[kind])
+				{
+					pick -= mix[kind++];
+				}
+				if (files.isEmpty() && kind != 0)
+				{
+					kind = 0;
+				}
+				switch (kind)
+				{
+					case 0:
+						create(true);
+						break;
+					case 1:
+						modify();
+						break;
+					case 2:
+						delete();
+						break;
+					default:
+						rename();
+				}
+				operations[kind]++;
+			}
+			nextAt += pause;
+			final long sleep = nextAt - System.nanoTime();
+			if (sleep > 0)
+			{
+				TimeUnit.NANOSECONDS.sleep(sleep);
+			}
+		}
+	}
+
+	/**
+	 * Creates a new file in a random directory. A tracked change is recorded
+	 * before the file is written, as its event may arrive before the write
+	 * returns, and the same for the other changes.
+	 *
+	 * @param tracked
+	 *            whether the change is to be tracked
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void create(boolean tracked) throws IOException
+	{
+		final Path file = directories.get(random.nextInt(directories.size())).resolve("f" + (sequence++) + ".dat");
+		if (!tracked)
+		{
+			write(file, StandardOpenOption.CREATE_NEW);
+			files.add(file);
+			states.put(file, new PathState(true));
+			return;
+		}
+		final PathState previous = changed(file, true);
+		try
+		{
+			write(file, StandardOpenOption.CREATE_NEW);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			rollback(file, previous);
+			throw e;
+		}
+		files.add(file);
+	}
+
+	/**
+	 * Appends to a random file.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void modify() throws IOException
+	{
+		final Path file = files.get(random.nextInt(files.size()));
+		final PathState previous = changed(file, true);
+		try
+		{
+			write(file, StandardOpenOption.APPEND);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			rollback(file, previous);
+			throw e;
+		}
+	}
+
+	/**
+	 * Deletes a random file.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void delete() throws IOException
+	{
+		final Path file = removeRandomFile();
+		final PathState previous = changed(file, false);
+		try
+		{
+			Files.delete(file);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			rollback(file, previous);
+			files.add(file);
+			throw e;
+		}
+	}
+
+	/**
+	 * Renames a random file in to another random directory.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void rename() throws IOException
+	{
+		final Path source = removeRandomFile();
+		final Path target = directories.get(random.nextInt(directories.size())).resolve("f" + (sequence++) + ".dat");
+		final PathState previousSource = changed(source, false);
+		final PathState previousTarget = changed(target, true);
+		try
+		{
+			Files.move(source, target);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			rollback(target, previousTarget);
+			rollback(source, previousSource);
+			files.add(source);
+			throw e;
+		}
+		files.add(target);
+	}
+
+	/**
+	 * Removes a random file from the known files.
+	 *
+	 * @return the file
+	 */
+	private Path removeRandomFile()
+	{
+		final int index = random.nextInt(files.size());
+		final Path file = files.get(index);
+		files.set(index, files.get(files.size() - 1));
+		files.remove(files.size() - 1);
+		return file;
+	}
+
+	/**
+	 * Writes random bytes of a random size within the configured range.
+	 *
+	 * @param file
+	 *            the file
+	 * @param option
+	 *            the open option
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void write(Path file, StandardOpenOption option) throws IOException
+	{
+		final long[] size = Arrays.stream(options.getOrDefault("size", "128,4096").split(","))
+				.mapToLong(Long::parseLong).toArray();
+		final byte[] bytes = new byte[(int) (size[0] + (long) (random.nextDouble() * (size[1] - size[0] + 1)))];
+		random.nextBytes(bytes);
+		try (FileChannel channel = FileChannel.open(file, option, StandardOpenOption.WRITE))
+		{
+			channel.write(ByteBuffer.wrap(bytes));
+		}
+	}
+
+	/**
+	 * Records the change of the path, to be matched with its event.
+	 *
+	 * @param path
+	 *            the path
+	 * @param exists
+	 *            whether the path exists after the change
+	 * @return a copy of the state before, null if none, to roll back to
+	 */
+	private PathState changed(Path path, boolean exists)
+	{
+		final long now = System.nanoTime();
+		synchronized (states)
+		{
+			PathState state = states.get(path);
+			final PathState previous = state != null ? new PathState(state) : null;
+			if (state == null)
+			{
+				state = new PathState(false);
+				states.put(path, state);
+			}
+			if (state.pendingSince == 0)
+			{
+				state.pendingSince = now;
+			}
+			state.modified |= exists && state.exists;
+			state.exists = exists;
+			return previous;
+		}
+	}
+
+	/**
+	 * Rolls back the change recorded for the path, when it failed on disk.
+	 *
+	 * @param path
+	 *            the path
+	 * @param previous
+	 *            the state before the change, null if none
+	 */
+	private void rollback(Path path, PathState previous)
+	{
+		synchronized (states)
+		{
+			if (previous == null)
+			{
+				states.remove(path);
+			}
+			else
+			{
+				states.put(path, previous);
+			}
+		}
+	}
+
+	@Override
+	public void onWatchEvent(WatchEventType type, FileInfo fileInfo)
+	{
+		final long now = System.nanoTime();
+		synchronized (states)
+		{
+			final PathState state = states.get(Paths.get(fileInfo.getAbsolutePath()));
+			if (state == null || state.pendingSince == 0)
+			{
+				duplicates++;
+				return;
+			}
+			if (type != state.expected())
+			{
+				mismatches++;
+			}
+			latencies.add(now - state.pendingSince);
+			state.observed(type != DELETE);
+		}
+	}
+
+	/**
+	 * Prints the report.
+	 *
+	 * @param metrics
+	 *            the metrics of the watcher
+	 */
+	private void report(WatcherMetrics metrics)
+	{
+		synchronized (states)
+		{
+			long missed = 0;
+			long coalesced = 0;
+			for (PathState state : states.values())
+			{
+				if (state.pendingSince != 0)
+				{
+					if (state.expected() == null)
+					{
+						coalesced++;
+					}
+					else
+					{
+						missed++;
+					}
+				}
+			}
+			final long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+			System.out.printf("operations: create=%d, modify=%d, delete=%d, rename=%d%n", operations[0],
+					operations[1], operations[2], operations[3]);
+			System.out.printf("events: %d, missed: %d, duplicates: %d, mismatched: %d, coalesced: %d%n",
+					sorted.length, missed, duplicates, mismatches, coalesced);
+			System.out.printf("latency ms: p50=%.1f, p90=%.1f, p99=%.1f, max=%.1f%n", percentile(sorted, 50),
+					percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 100));
+			System.out.printf("scans: %d, overruns: %d, max scan: %.1f ms%n", metrics.getScans(),
+					metrics.getScanOverruns(), metrics.getMaxScanMillis());
+		}
+	}
+
+	/**
+	 * Gets the percentile of the sorted latencies.
+	 *
+	 * @param sorted
+	 *            the sorted latencies in nano seconds
+	 * @param percentile
+	 *            the percentile
+	 * @return the latency in milli seconds
+	 */
+	private static double percentile(long[] sorted, int percentile)
+	{
+		if (sorted.length == 0)
+		{
+			return 0;
+		}
+		final int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(index, 0)] / 1e6;
+	}
+
+	/**
+	 * Gets the option as a long.
+	 *
+	 * @param name
+	 *            the name
+	 * @param defaultValue
+	 *            the default value
+	 * @return the value
+	 */
+	private long longOption(String name, long defaultValue)
+	{
+		final String value = options.get(name);
+		return value == null ? defaultValue : Long.parseLong(value);
+	}
+
+	/**
+	 * The state of a path, as changed by the harness and as last notified.
+	 */
+	private static final class PathState
+	{
+
+		/** Whether the path exists, as last notified. */
+		private boolean observedExists;
+
+		/** Whether the path exists now. */
+		private boolean exists;
+
+		/** Whether an existing file is modified since last notified. */
+		private boolean modified;
+
+		/** The time of the earliest change not notified yet, 0 if none. */
+		private long pendingSince;
+
+		/**
+		 * Instantiates a new path state.
+		 *
+		 * @param exists
+		 *            whether the path exists and is known to the watcher
+		 */
+		private PathState(boolean exists)
+		{
+			this.observedExists = exists;
+			this.exists = exists;
+		}
+
+		/**
+		 * Instantiates a copy of the given path state.
+		 *
+		 * @param state
+		 *            the state
+		 */
+		private PathState(PathState state)
+		{
+			this.observedExists = state.observedExists;
+			this.exists = state.exists;
+			this.modified = state.modified;
+			this.pendingSince = state.pendingSince;
+		}
+
+		/**
+		 * Gets the event expected for the pending changes.
+		 *
+		 * @return the event type, null if the changes cancel out
+		 */
+		private WatchEventType expected()
+		{
+			if (observedExists != exists)
+			{
+				return exists ? CREATE : DELETE;
+			}
+			return exists && modified ? MODIFY : null;
+		}
+
+		/**
+		 * Marks the pending changes as notified.
+		 *
+		 * @param exists
+		 *            whether the event reports the path as existing
+		 */
+		private void observed(boolean exists)
+		{
+			this.observedExists = exists;
+			this.modified = false;
+			this.pendingSince = 0;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * FileWatcher - DispatcherTest.java, Oct 19, 2026 7:03:41 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the {@link Dispatcher}: the order of the notifications of a key and
+ * of the ones dispatched to all the lanes, and the bound of a lane.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+public class DispatcherTest extends TestCase
+{
+
+	/** The dispatcher. */
+	private Dispatcher dispatcher;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception
+	{
+		if (dispatcher != null)
+		{
+			dispatcher.shutdown();
+		}
+	}
+
+	/**
+	 * Tests the notifications of a key are delivered in the order dispatched,
+	 * and a notification dispatched to all the lanes after the ones
+	 * dispatched before it and before the ones dispatched after it.
+	 *
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	public void testOrder() throws InterruptedException
+	{
+		dispatcher = new Dispatcher(4, "test", 16);
+		final List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+		final Map<Integer, String> keys = new HashMap<>();
+		final List<Integer> barriers = new ArrayList<>();
+		for (int i = 0; i < 2000; i++)
+		{
+			final int sequence = i;
+			if (i % 100 == 99)
+			{
+				barriers.add(sequence);
+				dispatcher.dispatchToAll(() -> delivered.add(sequence));
+			}
+			else
+			{
+				final String key = "/watched/" + i % 13;
+				keys.put(sequence, key);
+				dispatcher.dispatch(key, () -> delivered.add(sequence));
+			}
+		}
+		final CountDownLatch done = new CountDownLatch(1);
+		dispatcher.dispatchToAll(done::countDown);
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+
+		assertEquals(2000, delivered.size());
+		final Map<String, Integer> lastOfKey = new HashMap<>();
+		for (int sequence : delivered)
+		{
+			final String key = keys.get(sequence);
+			if (key != null)
+			{
+				final Integer last = lastOfKey.put(key, sequence);
+				assertTrue(key + ": " + last + " after " + sequence, last == null || last < sequence);
+			}
+		}
+		for (int barrier : barriers)
+		{
+			final int position = delivered.indexOf(barrier);
+			for (int i = 0; i < delivered.size(); i++)
+			{
+				assertEquals(barrier + " at " + position + ", " + delivered.get(i) + " at " + i,
+						delivered.get(i) < barrier, i < position);
+			}
+		}
+	}
+
+	/**
+	 * Tests the dispatching thread waits for room in a full lane, and the
+	 * notifications it waited with are all delivered in order.
+	 *
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	public void testFullLane() throws InterruptedException
+	{
+		dispatcher = new Dispatcher(1, "test", 2);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+		dispatcher.dispatch("/watched/a", () -> {
+			try
+			{
+				release.await();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		});
+		final Thread scan = new Thread(() -> {
+			for (int i = 0; i < 5; i++)
+			{
+				final int sequence = i;
+				dispatcher.dispatch("/watched/a", () -> delivered.add(sequence));
+			}
+		});
+		scan.start();
+		// Two queued, the third waits for room.
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (scan.getState() != Thread.State.WAITING && System.nanoTime() < deadline)
+		{
+			Thread.sleep(1);
+		}
+		assertEquals(Thread.State.WAITING, scan.getState());
+		assertTrue(delivered.isEmpty());
+
+		release.countDown();
+		scan.join(10_000);
+		assertFalse(scan.isAlive());
+		final CountDownLatch done = new CountDownLatch(1);
+		dispatcher.dispatch("/watched/a", done::countDown);
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4), delivered);
+	}
+}
@@ -0,0 +1,1005 @@
+/*
+ * FileWatcher - FileWatcherTest.java, Oct 19, 2026 6:12:08 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.filewatcher.fs.FileAttributes;
+import com.varra.filewatcher.fs.InMemoryFileSystem;
+import com.varra.filewatcher.fs.WatchedFileSystem;
+import com.varra.filewatcher.info.FileEvent;
+import com.varra.filewatcher.info.FileInfo;
+import com.varra.filewatcher.info.SubtreeInfo;
+import com.varra.filewatcher.listener.FileNotificationListener;
+import com.varra.filewatcher.listener.SubscriptionMask;
+import com.varra.filewatcher.listener.TailListener;
+import com.varra.filewatcher.listener.WatchEventType;
+import junit.framework.TestCase;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Tests the scans of the {@link FileWatcher} over an
+ * {@link InMemoryFileSystem}, one pass at a time on the calling thread.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+public class FileWatcherTest extends TestCase
+{
+
+	/** The file system. */
+	private InMemoryFileSystem fileSystem;
+
+	/** The file system holding back, failing or racing the scan of a path. */
+	private ScriptedFileSystem scriptedFileSystem;
+
+	/** The watcher. */
+	private FileWatcher watcher;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception
+	{
+		// Every change gets a later modification time.
+		final AtomicLong clock = new AtomicLong(1000);
+		fileSystem = new InMemoryFileSystem(clock::incrementAndGet);
+		scriptedFileSystem = new ScriptedFileSystem(fileSystem);
+		watcher = FileWatcher.builder().fileSystem(fileSystem).build();
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception
+	{
+		scriptedFileSystem.open();
+		watcher.shutdown();
+	}
+
+	/**
+	 * Tests a scan notifies the files created, modified and deleted since
+	 * the scan before.
+	 *
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public void testCreateModifyDelete() throws FileNotFoundException
+	{
+		fileSystem.write(path("/w/modified"), 1).write(path("/w/deleted"), 1).write(path("/w/kept"), 1);
+		final RecordingListener listener = new RecordingListener();
+		watcher.registerListener(listener, path("/w"));
+		baseline();
+		assertTrue(listener.events.isEmpty());
+
+		fileSystem.write(path("/w/modified"), 2).write(path("/w/created"), 1);
+		fileSystem.delete(path("/w/deleted"));
+		watcher.scan();
+		assertEquals(Arrays.asList("MODIFY " + path("/w"), "MODIFY " + path("/w/modified"),
+				"DELETE " + path("/w/deleted"), "CREATE " + path("/w/created")), listener.events);
+
+		listener.events.clear();
+		watcher.scan();
+		assertTrue(listener.events.toString(), listener.events.isEmpty());
+	}
+
+	/**
+	 * Tests a dirty file is rescanned alone, its siblings are neither
+	 * rescanned nor taken as deleted.
+	 *
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public void testDirtyFile() throws FileNotFoundException
+	{
+		fileSystem.write(path("/w/a"), 1).write(path("/w/b"), 1).write(path("/w/c"), 1);
+		watcher = FileWatcher.builder().fileSystem(fileSystem).fullScanInterval(3_600_000).build();
+		final RecordingListener listener = new RecordingListener();
+		watcher.registerListener(listener, path("/w"));
+		baseline();
+
+		fileSystem.write(path("/w/a"), 2).write(path("/w/b"), 2);
+		fileSystem.delete(path("/w/c"));
+		watcher.markDirty(path("/w/a"));
+		watcher.scan();
+		assertEquals(Arrays.asList("MODIFY " + path("/w/a")), listener.events);
+		assertEquals(1, watcher.getMetrics().getReconciledSubtrees());
+	}
+
+	/**
+	 * Tests a dirty directory deleted is notified deleted with all of its
+	 * subtree, and nothing else.
+	 *
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public void testDirtyDirectoryDeleted() throws FileNotFoundException
+	{
+		fileSystem.write(path("/w/d/x"), 1).write(path("/w/d/e/y"), 1).write(path("/w/f"), 1);
+		watcher = FileWatcher.builder().fileSystem(fileSystem).fullScanInterval(3_600_000).build();
+		final RecordingListener listener = new RecordingListener();
+		watcher.registerListener(listener, path("/w"));
+		baseline();
+
+		fileSystem.delete(path("/w/d"));
+		fileSystem.delete(path("/w/f"));
+		watcher.markDirty(path("/w/d"));
+		watcher.scan();
+		assertEquals(new HashSet<>(Arrays.asList("DELETE " + path("/w/d"), "DELETE " + path("/w/d/x"),
+				"DELETE " + path("/w/d/e"), "DELETE " + path("/w/d/e/y"))), new HashSet<>(listener.events));
+		assertEquals(4, listener.events.size());
+	}
+
+	/**
+	 * Tests the entries of a directory that cannot be listed are kept, and
+	 * the listing is retried with a backoff until it succeeds.
+	 *
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public void testUnlistableDirectory() throws FileNotFoundException
+	{
+		fileSystem.write(path("/w/u/x"), 1).write(path("/w/u/y"), 1).write(path("/w/v"), 1);
+		watcher = FileWatcher.builder().fileSystem(scriptedFileSystem).fullScanInterval(3_600_000).build();
+		final RecordingListener listener = new RecordingListener();
+		watcher.registerListener(listener, path("/w"));
+		baseline();
+
+		scriptedFileSystem.setUnlistable(path("/w/u"));
+		fileSystem.write(path("/w/u/z"), 1);
+		watcher.markDirty(path("/w/u"));
+		for (int i = 0; i < 40; i++)
+		{
+			watcher.scan();
+		}
+		// Its entries are not taken as deleted, only its own change is seen.
+		assertEquals(Arrays.asList("MODIFY " + path("/w/u")), listener.events);
+		// Retried after 1, 2, 4, 8 and 16 scans rather than at every scan.
+		assertEquals(6, scriptedFileSystem.failedLists.get());
+
+		listener.events.clear();
+		scriptedFileSystem.setUnlistable(null);
+		for (int i = 0; i < 40 && listener.events.isEmpty(); i++)
+		{
+			watcher.scan();
+		}
+		assertEquals(Arrays.asList("CREATE " + path("/w/u/z")), listener.events);
+	}
+
+	/**
+	 * Tests unregistering one of two roots forgets its files without
+	 * notifying them as deleted, while the other root is still watched.
+	 *
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public void testUnregisterRoot() throws FileNotFoundException
+	{
+		fileSystem.write(path("/a/f0"), 1).write(path("/a/f1"), 1).write(path("/b/f0"), 1).write(path("/b/c/f1"), 1);
+		final RecordingListener listener = new RecordingListener();
+		watcher.registerListener(listener, path("/a")).registerListener(listener, path("/b"));
+		baseline();
+		assertEquals(0, watcher.getMetrics().getEvents());
+
+		// No listener is left for /b, the events are counted all the same.
+		watcher.unRegisterListener(listener, path("/b"));
+		watcher.scan();
+		assertEquals(0, watcher.getMetrics().getEvents());
+		assertTrue(listener.events.toString(), listener.events.isEmpty());
+
+		fileSystem.delete(path("/a/f0"));
+		watcher.scan();
+		assertEquals(Arrays.asList("MODIFY " + path("/a"), "DELETE " + path("/a/f0")), listener.events);
+		assertEquals(2, watcher.getMetrics().getEvents());
+	}
+
+	/**
+	 * Tests the changes under a root already watched are still notified
+	 * while a root registered over it is being baselined.
+	 *
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public void testRootRegisteredOverWatchedRoot() throws FileNotFoundException
+	{
+		fileSystem.write(path("/p/c/f0"), 1).write(path("/p/c/f1"), 1).write(path("/p/d/f0"), 1);
+		watcher = FileWatcher.builder().fileSystem(scriptedFileSystem).build();
+		final RecordingListener listener = new RecordingListener();
+		watcher.registerListener(listener, path("/p/c"));
+		baseline();
+
+		scriptedFileSystem.close(path("/p/d"));
+		watcher.registerListener((type, fileInfo) -> {}, path("/p"));
+		watcher.scan();
+		fileSystem.delete(path("/p/c/f0"));
+		fileSystem.write(path("/p/c/f2"), 1);
+		watcher.scan();
+		assertEquals(Arrays.asList("MODIFY " + path("/p/c"), "DELETE " + path("/p/c/f0"),
+				"CREATE " + path("/p/c/f2")), listener.events);
+
+		listener.events.clear();
+		scriptedFileSystem.open();
+		baseline();
+		fileSystem.delete(path("/p/c/f1"));
+		watcher.scan();
+		assertEquals(Arrays.asList("MODIFY " + path("/p/c"), "DELETE " + path("/p/c/f1")), listener.events);
+	}
+
+	/**
+	 * Tests the changes under a directory are notified once its subtree is
+	 * indexed, before the rest of the root is.
+	 *
+	 * @throws Exception
+	 *             the exception
+	 */
+	public void testDirectoryReadyBeforeRoot() throws Exception
+	{
+		fileSystem.write(path("/r/a/f0"), 1).write(path("/r/b/f0"), 1);
+		scriptedFileSystem.close(path("/r/b"));
+		final AtomicLong indexed = new AtomicLong();
+		watcher = FileWatcher.builder().fileSystem(scriptedFileSystem)
+				.baselineProgressListener((directory, count, done) -> indexed.set(count)).build();
+		final RecordingListener listener = new RecordingListener();
+		watcher.registerListener(listener, path("/r"));
+		// The root, its two directories and the file of the one listed.
+		while (indexed.get() < 4)
+		{
+			watcher.scan();
+			Thread.sleep(10);
+		}
+		watcher.scan();
+		fileSystem.delete(path("/r/a/f0"));
+		watcher.scan();
+		assertFalse(watcher.ready().isDone());
+		assertEquals(Arrays.asList("MODIFY " + path("/r/a"), "DELETE " + path("/r/a/f0")), listener.events);
+
+		listener.events.clear();
+		scriptedFileSystem.open();
+		baseline();
+		assertTrue(listener.events.toString(), listener.events.isEmpty());
+	}
+
+	/**
+	 * Tests a tail listener registered twice for the same directory is
+	 * delivered the bytes appended once, and a mask without the events the
+	 * offsets are tracked from is rejected.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void testTailListenerRegisteredTwice() throws IOException
+	{
+		final Path directory = Files.createTempDirectory("tail");
+		try
+		{
+			final Path log = Files.write(directory.resolve("app.log"), "old\n".getBytes(StandardCharsets.UTF_8));
+			final List<String> appended = new ArrayList<>();
+			final TailListener listener = (fileInfo, bytes, position) -> appended
+					.add(position + " " + StandardCharsets.UTF_8.decode(bytes));
+			watcher = FileWatcher.builder().build();
+			watcher.registerTailListener(listener, directory.toString());
+			watcher.registerTailListener(listener, directory.toString());
+			try
+			{
+				watcher.registerTailListener(listener, directory.toString(),
+						SubscriptionMask.builder().eventType(WatchEventType.MODIFY).build());
+				fail("A mask without the creates and deletes is rejected.");
+			}
+			catch (IllegalArgumentException e)
+			{
+				// Expected.
+			}
+			baseline();
+
+			Files.write(log, "new\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+			watcher.scan();
+			assertEquals(Arrays.asList("4 new\n"), appended);
+		}
+		finally
+		{
+			try (Stream<Path> files = Files.walk(directory))
+			{
+				files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+			}
+		}
+	}
+
+	/**
+	 * Tests a subtree created holds only the entries the mask matches, and a
+	 * tree whose top directory the mask does not match is notified entry by
+	 * entry.
+	 *
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public void testSubtreeMask() throws FileNotFoundException
+	{
+		fileSystem.createDirectories(path("/w"));
+		final SubtreeListener sized = new SubtreeListener(0);
+		watcher.registerListener(sized, path("/w"), SubscriptionMask.builder().minSize(2).aggregateSubtrees(true)
+				.build());
+		final RecordingListener files = new RecordingListener();
+		watcher.registerListener(files, path("/w"), SubscriptionMask.builder().excludeDirectories(true)
+				.aggregateSubtrees(true).build());
+		baseline();
+
+		fileSystem.write(path("/w/d/x"), 1).write(path("/w/d/y"), 5).write(path("/w/d/e/z"), 3).write(path("/w/d-x"), 4);
+		watcher.scan();
+		assertEquals(Arrays.asList("MODIFY " + path("/w"), "SUBTREE " + path("/w/d") + " 3 "
+				+ Arrays.asList(path("/w/d/e"), path("/w/d/e/z"), path("/w/d/y")), "CREATE " + path("/w/d-x")),
+				sized.events);
+		assertEquals(new HashSet<>(Arrays.asList("CREATE " + path("/w/d/x"), "CREATE " + path("/w/d/y"), "CREATE "
+				+ path("/w/d/e/z"), "CREATE " + path("/w/d-x"))), new HashSet<>(files.events));
+		assertEquals(4, files.events.size());
+	}
+
+	/**
+	 * Tests a subtree created is delivered before a file created under it
+	 * in a later scan, though the file is on another lane.
+	 *
+	 * @throws Exception
+	 *             the exception
+	 */
+	public void testSubtreeBeforeChildren() throws Exception
+	{
+		String directory = null;
+		String child = null;
+		for (int i = 0; child == null; i++)
+		{
+			final String candidate = path("/w/d" + i);
+			if (Dispatcher.laneOf(candidate, 4) != Dispatcher.laneOf(candidate + File.separator + "b", 4))
+			{
+				directory = candidate;
+				child = candidate + File.separator + "b";
+			}
+		}
+		fileSystem.createDirectories(path("/w"));
+		watcher = FileWatcher.builder().fileSystem(fileSystem).dispatchThreads(4).build();
+		// Slow enough for the file to overtake it on its own lane.
+		final SubtreeListener listener = new SubtreeListener(200);
+		watcher.registerListener(listener, path("/w"), SubscriptionMask.builder().eventType(WatchEventType.CREATE)
+				.aggregateSubtrees(true).build());
+		baseline();
+
+		fileSystem.write(directory + File.separator + "a", 1);
+		watcher.scan();
+		fileSystem.write(child, 1);
+		watcher.scan();
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (listener.size() < 2 && System.nanoTime() < deadline)
+		{
+			Thread.sleep(10);
+		}
+		assertEquals(Arrays.asList("SUBTREE " + directory + " 1 " + Arrays.asList(directory + File.separator + "a"),
+				"CREATE " + child), listener.events);
+	}
+
+	/**
+	 * Tests a new file vanishing after being listed, or after its attributes
+	 * are read, is not notified created, and counted vanished.
+	 *
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public void testNewFileVanished() throws FileNotFoundException
+	{
+		fileSystem.write(path("/w/a"), 1);
+		watcher = FileWatcher.builder().fileSystem(scriptedFileSystem).build();
+		final RecordingListener listener = new RecordingListener();
+		watcher.registerListener(listener, path("/w"), SubscriptionMask.builder().excludeDirectories(true).build());
+		baseline();
+
+		fileSystem.write(path("/w/b"), 1).write(path("/w/c"), 1);
+		scriptedFileSystem.vanish(path("/w/b"), false);
+		watcher.scan();
+		assertEquals(Arrays.asList("CREATE " + path("/w/c")), listener.events);
+		assertEquals(1, watcher.getMetrics().getVanishedFiles());
+
+		listener.events.clear();
+		fileSystem.write(path("/w/d"), 1);
+		scriptedFileSystem.vanish(path("/w/d"), true);
+		watcher.scan();
+		assertTrue(listener.events.toString(), listener.events.isEmpty());
+		assertEquals(2, watcher.getMetrics().getVanishedFiles());
+		watcher.scan();
+		assertTrue(listener.events.toString(), listener.events.isEmpty());
+	}
+
+	/**
+	 * Tests a tracked file vanishing after being listed, or after its
+	 * attributes are read, is notified deleted, and counted vanished.
+	 *
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public void testTrackedFileVanished() throws FileNotFoundException
+	{
+		fileSystem.write(path("/w/a"), 1).write(path("/w/b"), 1);
+		watcher = FileWatcher.builder().fileSystem(scriptedFileSystem).build();
+		final RecordingListener listener = new RecordingListener();
+		watcher.registerListener(listener, path("/w"), SubscriptionMask.builder().excludeDirectories(true).build());
+		baseline();
+
+		scriptedFileSystem.vanish(path("/w/a"), false);
+		watcher.scan();
+		assertEquals(Arrays.asList("DELETE " + path("/w/a")), listener.events);
+		assertEquals(1, watcher.getMetrics().getVanishedFiles());
+
+		listener.events.clear();
+		fileSystem.write(path("/w/b"), 2);
+		scriptedFileSystem.vanish(path("/w/b"), true);
+		watcher.scan();
+		assertEquals(Arrays.asList("DELETE " + path("/w/b")), listener.events);
+		assertEquals(2, watcher.getMetrics().getVanishedFiles());
+		watcher.scan();
+		assertEquals(1, listener.events.size());
+	}
+
+	/**
+	 * Tests a registered directory or a dirty path gone is not counted
+	 * vanished, scan after scan, as it was not listed.
+	 *
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public void testVanishedCountsListedOnly() throws FileNotFoundException
+	{
+		fileSystem.write(path("/w/a"), 1).write(path("/v/a"), 1);
+		final RecordingListener listener = new RecordingListener();
+		watcher.registerListener(listener, path("/w"));
+		watcher.registerListener(listener, path("/v"));
+		baseline();
+
+		fileSystem.delete(path("/v/a"));
+		fileSystem.delete(path("/v"));
+		watcher.markDirty(path("/w/gone"));
+		for (int i = 0; i < 5; i++)
+		{
+			watcher.scan();
+		}
+		assertEquals(Arrays.asList("DELETE " + path("/v"), "DELETE " + path("/v/a")), listener.events);
+		assertEquals(0, watcher.getMetrics().getVanishedFiles());
+	}
+
+	/**
+	 * Tests a directory whose files are spilled is notified deleted with all
+	 * of its files.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void testSpilledDirectoryDeleted() throws IOException
+	{
+		writeFiles("/w/a", 10);
+		writeFiles("/w/b", 10);
+		final Path spillDirectory = Files.createTempDirectory("spill");
+		try
+		{
+			watcher = FileWatcher.builder().fileSystem(fileSystem).maxResidentEntries(8).spillDirectory(spillDirectory)
+					.build();
+			final RecordingListener listener = new RecordingListener();
+			watcher.registerListener(listener, path("/w"));
+			baseline();
+			watcher.scan();
+			assertTrue(watcher.getMetrics().getSpilledEntries() > 0);
+			assertTrue(listener.events.toString(), listener.events.isEmpty());
+
+			final List<String> expected = new ArrayList<>(Arrays.asList("MODIFY " + path("/w"), "DELETE "
+					+ path("/w/a")));
+			for (int i = 0; i < 10; i++)
+			{
+				fileSystem.delete(path("/w/a/f" + i));
+				expected.add("DELETE " + path("/w/a/f" + i));
+			}
+			fileSystem.delete(path("/w/a"));
+			watcher.scan();
+			assertEquals(new HashSet<>(expected), new HashSet<>(listener.events));
+			assertEquals(expected.size(), listener.events.size());
+
+			listener.events.clear();
+			watcher.scan();
+			assertTrue(listener.events.toString(), listener.events.isEmpty());
+		}
+		finally
+		{
+			watcher.shutdown();
+			deleteAll(spillDirectory);
+		}
+	}
+
+	/**
+	 * Tests a dirty file whose siblings are spilled is compared with its
+	 * spilled entry, and the siblings paged in are neither notified nor lost.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void testDirtyFileSpilledSiblings() throws IOException
+	{
+		writeFiles("/w/a", 10);
+		writeFiles("/w/b", 10);
+		final Path spillDirectory = Files.createTempDirectory("spill");
+		try
+		{
+			watcher = FileWatcher.builder().fileSystem(fileSystem).maxResidentEntries(8).spillDirectory(spillDirectory)
+					.fullScanInterval(3_600_000).build();
+			final RecordingListener listener = new RecordingListener();
+			watcher.registerListener(listener, path("/w"));
+			baseline();
+			final long pageIns = watcher.getMetrics().getPageIns();
+
+			fileSystem.write(path("/w/a/f3"), 2);
+			watcher.markDirty(path("/w/a/f3"));
+			watcher.scan();
+			assertEquals(Arrays.asList("MODIFY " + path("/w/a/f3")), listener.events);
+			assertTrue(watcher.getMetrics().getPageIns() > pageIns);
+
+			listener.events.clear();
+			fileSystem.delete(path("/w/a/f4"));
+			watcher.markDirty(path("/w/a"));
+			watcher.scan();
+			assertEquals(Arrays.asList("MODIFY " + path("/w/a"), "DELETE " + path("/w/a/f4")), listener.events);
+		}
+		finally
+		{
+			watcher.shutdown();
+			deleteAll(spillDirectory);
+		}
+	}
+
+	/**
+	 * Tests the files a baseline spilled are merged in to the snapshot as
+	 * spilled, compared by the scans after it like the resident ones.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void testBaselineSpilledThenMerged() throws IOException
+	{
+		for (int i = 0; i < 6; i++)
+		{
+			writeFiles("/w/d" + i, 10);
+		}
+		final Path spillDirectory = Files.createTempDirectory("spill");
+		try
+		{
+			watcher = FileWatcher.builder().fileSystem(fileSystem).maxResidentEntries(16).spillDirectory(spillDirectory)
+					.build();
+			final RecordingListener listener = new RecordingListener();
+			watcher.registerListener(listener, path("/w"));
+			baseline();
+			watcher.scan();
+			final WatcherMetrics metrics = watcher.getMetrics();
+			assertTrue(metrics.getSpilledEntries() > 0);
+			assertEquals(67, metrics.getResidentEntries() + metrics.getSpilledEntries());
+			assertTrue(listener.events.toString(), listener.events.isEmpty());
+
+			fileSystem.write(path("/w/d2/f5"), 2);
+			watcher.scan();
+			assertEquals(Arrays.asList("MODIFY " + path("/w/d2/f5")), listener.events);
+			assertEquals(67, metrics.getResidentEntries() + metrics.getSpilledEntries());
+		}
+		finally
+		{
+			watcher.shutdown();
+			deleteAll(spillDirectory);
+		}
+	}
+
+	/**
+	 * Tests the scans are skipped while the only listener is a saturated
+	 * publisher, no more than the bound in a row, and not at all once another
+	 * listener is registered.
+	 *
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 */
+	public void testThrottledScans() throws FileNotFoundException
+	{
+		fileSystem.createDirectories(path("/w")).createDirectories(path("/v"));
+		final WatchEventPublisher publisher = watcher.publisher(path("/w"), SubscriptionMask.builder()
+				.excludeDirectories(true).build(), 1);
+		final PathSubscriber subscriber = new PathSubscriber();
+		publisher.subscribe(subscriber);
+		baseline();
+		final WatcherMetrics metrics = watcher.getMetrics();
+
+		fileSystem.write(path("/w/a"), 1);
+		watcher.scan();
+		fileSystem.write(path("/w/b"), 1);
+		watcher.scan();
+		assertEquals(1, metrics.getThrottledScans());
+		subscriber.subscription.request(1);
+		assertEquals(Arrays.asList(path("/w/a")), subscriber.paths);
+
+		watcher.scan();
+		fileSystem.write(path("/w/c"), 1);
+		for (int i = 0; i < FileWatcher.MAX_THROTTLED_SCANS; i++)
+		{
+			watcher.scan();
+		}
+		assertEquals(1 + FileWatcher.MAX_THROTTLED_SCANS, metrics.getThrottledScans());
+		watcher.scan();
+		assertEquals(1 + FileWatcher.MAX_THROTTLED_SCANS, metrics.getThrottledScans());
+		subscriber.subscription.request(2);
+		assertEquals(Arrays.asList(path("/w/a"), path("/w/b"), path("/w/c")), subscriber.paths);
+
+		fileSystem.write(path("/w/d"), 1);
+		watcher.scan();
+		watcher.scan();
+		assertEquals(2 + FileWatcher.MAX_THROTTLED_SCANS, metrics.getThrottledScans());
+		watcher.registerListener(new RecordingListener(), path("/v"));
+		watcher.scan();
+		watcher.scan();
+		assertEquals(2 + FileWatcher.MAX_THROTTLED_SCANS, metrics.getThrottledScans());
+	}
+
+	/**
+	 * Scans until the roots registered are baselined.
+	 */
+	private void baseline()
+	{
+		do
+		{
+			watcher.scan();
+		}
+		while (!watcher.ready().isDone());
+	}
+
+	/**
+	 * Writes the given number of files to the directory, named f0 on.
+	 *
+	 * @param directory
+	 *            the directory, separated by /
+	 * @param count
+	 *            the number of files
+	 */
+	private void writeFiles(String directory, int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			fileSystem.write(path(directory + "/f" + i), 1);
+		}
+	}
+
+	/**
+	 * Deletes the directory and everything under it.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void deleteAll(Path directory) throws IOException
+	{
+		try (Stream<Path> files = Files.walk(directory))
+		{
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	/**
+	 * Gets the platform path of the given path.
+	 *
+	 * @param path
+	 *            the path, separated by /
+	 * @return the platform path
+	 */
+	private static String path(String path)
+	{
+		return path.replace('/', File.separatorChar);
+	}
+
+	/**
+	 * A file system listing a directory only once opened, the baselines
+	 * walking it wait meanwhile, failing to list another, and deleting a file
+	 * in the middle of its scan.
+	 */
+	private static class ScriptedFileSystem implements WatchedFileSystem
+	{
+
+		/** The file system. */
+		private final InMemoryFileSystem fileSystem;
+
+		/** The latch of the directory closed. */
+		private final CountDownLatch latch = new CountDownLatch(1);
+
+		/** The directory closed, null if none. */
+		private volatile String closed;
+
+		/** The directory failing to be listed, null if none. */
+		private volatile String unlistable;
+
+		/** The attempts to list the directory failing. */
+		private final AtomicInteger failedLists = new AtomicInteger();
+
+		/** The file deleted once listed or once stat-ed, null if none. */
+		private volatile String vanishing;
+
+		/** Whether the file is deleted once stat-ed, else once listed. */
+		private volatile boolean vanishingOnStat;
+
+		/**
+		 * Instantiates a new scripted file system.
+		 *
+		 * @param fileSystem
+		 *            the file system
+		 */
+		ScriptedFileSystem(InMemoryFileSystem fileSystem)
+		{
+			this.fileSystem = fileSystem;
+		}
+
+		/**
+		 * Fails the listing of the given directory, until set to another.
+		 *
+		 * @param directory
+		 *            the directory, null for none
+		 */
+		void setUnlistable(String directory)
+		{
+			unlistable = directory;
+		}
+
+		/**
+		 * Deletes the given file once, right after its directory is listed or
+		 * right after its attributes are read.
+		 *
+		 * @param path
+		 *            the path
+		 * @param onStat
+		 *            whether after its attributes are read, else after its
+		 *            directory is listed
+		 */
+		void vanish(String path, boolean onStat)
+		{
+			vanishingOnStat = onStat;
+			vanishing = path;
+		}
+
+		/**
+		 * Closes the given directory, until opened.
+		 *
+		 * @param directory
+		 *            the directory
+		 */
+		void close(String directory)
+		{
+			closed = directory;
+		}
+
+		/**
+		 * Opens the directory closed.
+		 */
+		void open()
+		{
+			latch.countDown();
+		}
+
+		/* (non-Javadoc)
+		 * @see com.varra.filewatcher.fs.WatchedFileSystem#getAbsolutePath(java.lang.String)
+		 */
+		@Override
+		public String getAbsolutePath(String path)
+		{
+			return fileSystem.getAbsolutePath(path);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.varra.filewatcher.fs.WatchedFileSystem#list(java.lang.String)
+		 */
+		@Override
+		public String[] list(String directory)
+		{
+			if (directory.equals(unlistable))
+			{
+				failedLists.incrementAndGet();
+				return null;
+			}
+			if (directory.equals(closed))
+			{
+				try
+				{
+					latch.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+			final String[] names = fileSystem.list(directory);
+			final String path = vanishing;
+			if (path != null && !vanishingOnStat && directory.equals(new File(path).getParent()))
+			{
+				vanishing = null;
+				fileSystem.delete(path);
+			}
+			return names;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.varra.filewatcher.fs.WatchedFileSystem#readAttributes(java.lang.String, com.varra.filewatcher.fs.FileAttributes)
+		 */
+		@Override
+		public boolean readAttributes(String path, FileAttributes attributes)
+		{
+			final boolean read = fileSystem.readAttributes(path, attributes);
+			if (vanishingOnStat && path.equals(vanishing))
+			{
+				vanishing = null;
+				fileSystem.delete(path);
+			}
+			return read;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.varra.filewatcher.fs.WatchedFileSystem#getFileInfo(java.lang.String)
+		 */
+		@Override
+		public FileInfo getFileInfo(String path) throws FileNotFoundException
+		{
+			return fileSystem.getFileInfo(path);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.varra.filewatcher.fs.WatchedFileSystem#readFileInfo(java.lang.String)
+		 */
+		@Override
+		public FileInfo readFileInfo(String path)
+		{
+			return fileSystem.readFileInfo(path);
+		}
+	}
+
+	/**
+	 * A subscriber recording the paths of the events, requesting nothing by
+	 * itself.
+	 */
+	private static class PathSubscriber implements Subscriber<FileEvent>
+	{
+
+		/** The subscription. */
+		Subscription subscription;
+
+		/** The paths. */
+		final List<String> paths = new ArrayList<>();
+
+		/* (non-Javadoc)
+		 * @see org.reactivestreams.Subscriber#onSubscribe(org.reactivestreams.Subscription)
+		 */
+		@Override
+		public void onSubscribe(Subscription subscription)
+		{
+			this.subscription = subscription;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.reactivestreams.Subscriber#onNext(java.lang.Object)
+		 */
+		@Override
+		public void onNext(FileEvent event)
+		{
+			paths.add(event.getFileInfo().getAbsolutePath());
+		}
+
+		/* (non-Javadoc)
+		 * @see org.reactivestreams.Subscriber#onError(java.lang.Throwable)
+		 */
+		@Override
+		public void onError(Throwable error)
+		{
+			throw new AssertionError(error);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.reactivestreams.Subscriber#onComplete()
+		 */
+		@Override
+		public void onComplete()
+		{
+		}
+	}
+
+	/**
+	 * A listener recording the events as their type and path.
+	 */
+	private static class RecordingListener implements FileNotificationListener
+	{
+
+		/** The events. */
+		final List<String> events = new ArrayList<>();
+
+		/* (non-Javadoc)
+		 * @see com.varra.filewatcher.listener.FileNotificationListener#onWatchEvent(com.varra.filewatcher.listener.WatchEventType, com.varra.filewatcher.info.FileInfo)
+		 */
+		@Override
+		public synchronized void onWatchEvent(WatchEventType type, FileInfo fileInfo)
+		{
+			events.add(type + " " + fileInfo.getAbsolutePath());
+		}
+
+		/**
+		 * Gets the number of events recorded.
+		 *
+		 * @return the size
+		 */
+		synchronized int size()
+		{
+			return events.size();
+		}
+	}
+
+	/**
+	 * A listener recording the subtrees created as their top directory, their
+	 * entry count and their entries sorted, and the other events as their
+	 * type and path.
+	 */
+	private static class SubtreeListener extends RecordingListener
+	{
+
+		/** The time taken by each subtree, in millis. */
+		private final long delay;
+
+		/**
+		 * Instantiates a new subtree listener.
+		 *
+		 * @param delay
+		 *            the time taken by each subtree, in millis
+		 */
+		SubtreeListener(long delay)
+		{
+			this.delay = delay;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.varra.filewatcher.listener.FileNotificationListener#onCreateSubtree(com.varra.filewatcher.info.SubtreeInfo)
+		 */
+		@Override
+		public void onCreateSubtree(SubtreeInfo subtree)
+		{
+			try
+			{
+				Thread.sleep(delay);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			final List<String> entries = new ArrayList<>();
+			for (FileInfo fileInfo : subtree.getEntries())
+			{
+				entries.add(fileInfo.getAbsolutePath());
+			}
+			Collections.sort(entries);
+			synchronized (this)
+			{
+				events.add("SUBTREE " + subtree.getDirectory().getAbsolutePath() + " " + subtree.getEntryCount() + " "
+						+ entries);
+			}
+		}
+	}
+}
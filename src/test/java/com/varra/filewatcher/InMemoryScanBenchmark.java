@@ -0,0 +1,101 @@
+/*
+ * FileWatcher - InMemoryScanBenchmark.java, Oct 18, 2026 3:20:44 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.filewatcher.fs.InMemoryFileSystem;
+import com.varra.filewatcher.fs.InMemoryFileSystem.Operation;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the {@link FileWatcher} on a simulated tree of millions of files,
+ * held in an {@link InMemoryFileSystem} with an optional latency per stat:
+ * the time to be ready, the time of an unchanged pass and of a pass with
+ * changes.
+ *
+ * <pre>
+ * java -cp ... com.varra.filewatcher.InMemoryScanBenchmark [files] [stat latency micros] [changes]
+ * </pre>
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ *
+ */
+public final class InMemoryScanBenchmark
+{
+
+	/** The files per directory. */
+	private static final int FILES_PER_DIRECTORY = 500;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the number of files, the stat latency and the changes
+	 * @throws Exception
+	 *             the exception
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		final int files = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		final long statLatency = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 0;
+		final int changes = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+		final AtomicLong clock = new AtomicLong(1_000_000);
+		final InMemoryFileSystem fileSystem = new InMemoryFileSystem(clock::get);
+		final String root = File.separator + "bench";
+		for (int i = 0; i < files; i++)
+		{
+			fileSystem.write(path(root, i), i);
+		}
+		fileSystem.setLatency(Operation.STAT, statLatency);
+
+		final LongAdder events = new LongAdder();
+		final FileWatcher watcher = FileWatcher.builder().fileSystem(fileSystem).build()
+				.registerListener((type, info) -> events.increment(), root);
+
+		long startedAt = System.nanoTime();
+		while (!watcher.ready().isDone())
+		{
+			watcher.scan();
+			Thread.sleep(1);
+		}
+		System.out.printf("files: %d, stat latency: %d us%n", files, statLatency / 1000);
+		System.out.printf("ready in: %.1f ms%n", (System.nanoTime() - startedAt) / 1e6);
+
+		startedAt = System.nanoTime();
+		watcher.scan();
+		System.out.printf("unchanged pass: %.1f ms%n", (System.nanoTime() - startedAt) / 1e6);
+
+		clock.addAndGet(1000);
+		for (int i = 0; i < changes; i++)
+		{
+			fileSystem.write(path(root, (int) ((long) i * files / changes)), files + i);
+		}
+		startedAt = System.nanoTime();
+		watcher.scan();
+		System.out.printf("pass with %d changes: %.1f ms, events: %d%n", changes,
+				(System.nanoTime() - startedAt) / 1e6, events.sum());
+		watcher.shutdown();
+	}
+
+	/**
+	 * Gets the path of the i'th file.
+	 *
+	 * @param root
+	 *            the root
+	 * @param i
+	 *            the i
+	 * @return the path
+	 */
+	private static String path(String root, int i)
+	{
+		return root + File.separator + "d" + (i / FILES_PER_DIRECTORY) + File.separator + "f" + i;
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * FileWatcher - RollupsTest.java, Oct 19, 2026 9:41:06 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the {@link Rollups}: the totals left by a subtree deleted in any
+ * order, the thresholds crossed and the directories not watched.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+public class RollupsTest extends TestCase
+{
+
+	/** The rollups. */
+	private Rollups rollups;
+
+	/** The thresholds crossed, as whether exceeded. */
+	private List<Boolean> crossed;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception
+	{
+		rollups = new Rollups();
+		crossed = new ArrayList<>();
+		rollups.add(directory("/w"));
+		rollups.add(directory("/w/d"));
+		rollups.add(file("/w/d/f", 5));
+		rollups.add(directory("/w/d/e"));
+		rollups.add(file("/w/d/e/g", 7));
+		rollups.add(file("/w/h", 11));
+		publish();
+	}
+
+	/**
+	 * Tests the totals of a tree.
+	 */
+	public void testTotals()
+	{
+		assertRollup("/w", 3, 2, 23);
+		assertRollup("/w/d", 2, 1, 12);
+		assertRollup("/w/d/e", 1, 0, 7);
+	}
+
+	/**
+	 * Tests a subtree deleted from its directory down is subtracted once.
+	 */
+	public void testSubtreeDeletedDirectoryFirst()
+	{
+		rollups.remove(directory("/w/d"));
+		rollups.remove(directory("/w/d/e"));
+		rollups.remove(file("/w/d/e/g", 7));
+		rollups.remove(file("/w/d/f", 5));
+		publish();
+		assertRollup("/w", 1, 0, 11);
+		assertNull(rollups.get(path("/w/d")));
+		assertNull(rollups.get(path("/w/d/e")));
+	}
+
+	/**
+	 * Tests a subtree deleted from its entries up is subtracted once.
+	 */
+	public void testSubtreeDeletedEntriesFirst()
+	{
+		rollups.remove(file("/w/d/e/g", 7));
+		rollups.remove(directory("/w/d/e"));
+		rollups.remove(file("/w/d/f", 5));
+		rollups.remove(directory("/w/d"));
+		publish();
+		assertRollup("/w", 1, 0, 11);
+		assertNull(rollups.get(path("/w/d")));
+		assertNull(rollups.get(path("/w/d/e")));
+	}
+
+	/**
+	 * Tests a threshold is notified once per crossing, in either way, and
+	 * not while the totals stay on the same side.
+	 */
+	public void testThresholdCrossing()
+	{
+		rollups.setThreshold(path("/w"), 3, 0, null);
+		publish();
+		assertTrue(crossed.isEmpty());
+
+		rollups.add(file("/w/i", 1));
+		publish();
+		assertEquals(Arrays.asList(true), crossed);
+		rollups.add(file("/w/j", 1));
+		publish();
+		assertEquals(Arrays.asList(true), crossed);
+
+		rollups.remove(file("/w/j", 1));
+		publish();
+		assertEquals(Arrays.asList(true), crossed);
+		rollups.remove(file("/w/i", 1));
+		publish();
+		assertEquals(Arrays.asList(true, false), crossed);
+		rollups.remove(file("/w/h", 11));
+		publish();
+		assertEquals(Arrays.asList(true, false), crossed);
+
+		rollups.setThreshold(path("/w"), 0, 10, null);
+		publish();
+		assertEquals(Arrays.asList(true, false, true), crossed);
+		rollups.modify(file("/w/d/f", 1), 5, false);
+		publish();
+		assertEquals(Arrays.asList(true, false, true, false), crossed);
+	}
+
+	/**
+	 * Tests a change stops at the first directory above it not watched, the
+	 * ones watched above that one are left as they are.
+	 */
+	public void testUntrackedAncestor()
+	{
+		rollups.add(directory("/w/x/y"));
+		rollups.add(file("/w/x/y/f", 3));
+		rollups.add(file("/w/x/g", 13));
+		publish();
+		assertRollup("/w/x/y", 1, 0, 3);
+		assertNull(rollups.get(path("/w/x")));
+		assertRollup("/w", 3, 2, 23);
+
+		rollups.remove(directory("/w/x/y"));
+		publish();
+		assertNull(rollups.get(path("/w/x/y")));
+		assertRollup("/w", 3, 2, 23);
+	}
+
+	/**
+	 * Publishes the totals, recording the thresholds crossed.
+	 */
+	private void publish()
+	{
+		rollups.publish((threshold, rollup) -> crossed.add(threshold.exceeded));
+	}
+
+	/**
+	 * Asserts the totals of the directory.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @param files
+	 *            the files
+	 * @param directories
+	 *            the directories
+	 * @param bytes
+	 *            the bytes
+	 */
+	private void assertRollup(String directory, long files, long directories, long bytes)
+	{
+		final DirectoryRollup rollup = rollups.get(path(directory));
+		assertNotNull(rollup);
+		assertEquals(files, rollup.getFiles());
+		assertEquals(directories, rollup.getDirectories());
+		assertEquals(bytes, rollup.getBytes());
+	}
+
+	/**
+	 * Creates the snapshot entry of a directory.
+	 *
+	 * @param path
+	 *            the path, separated by /
+	 * @return the tracked file
+	 */
+	private static TrackedFile directory(String path)
+	{
+		return new TrackedFile(path(path), 1000, 0, true);
+	}
+
+	/**
+	 * Creates the snapshot entry of a file.
+	 *
+	 * @param path
+	 *            the path, separated by /
+	 * @param size
+	 *            the size
+	 * @return the tracked file
+	 */
+	private static TrackedFile file(String path, long size)
+	{
+		return new TrackedFile(path(path), 1000, size, false);
+	}
+
+	/**
+	 * Gets the platform path of the given path.
+	 *
+	 * @param path
+	 *            the path, separated by /
+	 * @return the platform path
+	 */
+	private static String path(String path)
+	{
+		return path.replace('/', File.separatorChar);
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * FileWatcher - ScanAllocationBenchmark.java, Oct 18, 2026 10:41:27 AM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures the bytes allocated by the scan thread per pass over an unchanged
+ * tree, i.e. the steady state of the {@link FileWatcher}.
+ *
+ * <pre>
+ * java -cp ... com.varra.filewatcher.ScanAllocationBenchmark [files] [passes]
+ * </pre>
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ *
+ */
+public final class ScanAllocationBenchmark
+{
+
+	/** The files per directory. */
+	private static final int FILES_PER_DIRECTORY = 100;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the number of files and passes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		final int files = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		final int passes = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		final Path root = Files.createTempDirectory("scan-allocation");
+		try
+		{
+			for (int i = 0; i < files; i++)
+			{
+				final Path directory = root.resolve("d" + (i / FILES_PER_DIRECTORY));
+				if (i % FILES_PER_DIRECTORY == 0)
+				{
+					Files.createDirectories(directory);
+				}
+				Files.createFile(directory.resolve("f" + i + ".dat"));
+			}
+
+			final FileWatcher watcher = FileWatcher.builder().build().registerListener((type, info) -> {
+				throw new IllegalStateException("Unexpected event on an unchanged tree: " + type + " " + info);
+			}, root.toString());
+			// The baseline and a few warm up passes.
+			while (!watcher.ready().isDone())
+			{
+				watcher.scan();
+				Thread.sleep(10);
+			}
+			for (int i = 0; i < 5; i++)
+			{
+				watcher.scan();
+			}
+
+			final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+					.getThreadMXBean();
+			final long threadId = Thread.currentThread().getId();
+			final long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+			final long startedAt = System.nanoTime();
+			for (int i = 0; i < passes; i++)
+			{
+				watcher.scan();
+			}
+			final long elapsed = System.nanoTime() - startedAt;
+			final long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+			System.out.printf("entries: %d, passes: %d%n", files + files / FILES_PER_DIRECTORY, passes);
+			System.out.printf("allocated/pass: %d bytes, allocated/entry: %.1f bytes, time/pass: %.2f ms%n",
+					allocated / passes, (double) allocated / passes / files, elapsed / passes / 1e6);
+		}
+		finally
+		{
+			try (Stream<Path> paths = Files.walk(root))
+			{
+				paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * FileWatcher - SpillStoreTest.java, Oct 19, 2026 3:41:27 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Tests the {@link SpillStore}: the round trip of the files of a directory,
+ * the merge of the ones spilled twice, a failed read, the compaction and the
+ * clear.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+public class SpillStoreTest extends TestCase
+{
+
+	/** The directory of the spill file. */
+	private Path directory;
+
+	/** The store. */
+	private SpillStore store;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception
+	{
+		directory = Files.createTempDirectory("spill");
+		store = new SpillStore(directory);
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception
+	{
+		store.close();
+		try (Stream<Path> files = Files.walk(directory))
+		{
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	/**
+	 * Tests the files are read back as spilled, and only once.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void testRoundTrip() throws IOException
+	{
+		store.write(path("a"), files("a", 0, 3));
+		store.write(path("b"), files("b", 0, 2));
+		assertTrue(store.contains(path("a")));
+		assertEquals(5, store.getEntries());
+
+		final List<TrackedFile> files = store.read(path("a"));
+		assertEquals(3, files.size());
+		assertEquals(path("a", 1), files.get(1).path);
+		assertEquals(1001, files.get(1).lastModified);
+		assertEquals(11, files.get(1).size);
+		assertFalse(files.get(1).directory);
+
+		assertFalse(store.contains(path("a")));
+		assertTrue(store.read(path("a")).isEmpty());
+		assertEquals(2, store.getEntries());
+		assertEquals(2, store.read(path("b")).size());
+		assertTrue(store.isEmpty());
+	}
+
+	/**
+	 * Tests the files spilled again for a directory are added to the ones
+	 * already spilled.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void testMerge() throws IOException
+	{
+		store.write(path("a"), files("a", 0, 2));
+		store.write(path("a"), files("a", 2, 3));
+		assertEquals(5, store.getEntries());
+		final List<TrackedFile> files = store.read(path("a"));
+		assertEquals(5, files.size());
+		assertEquals(path("a", 4), files.get(4).path);
+	}
+
+	/**
+	 * Tests the space of the records read back is reclaimed, and the records
+	 * still spilled survive it.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void testCompaction() throws IOException
+	{
+		store.write(path("kept"), files("kept", 0, 10));
+		store.write(path("a"), files("a", 0, 5000));
+		for (int i = 0; i < 200; i++)
+		{
+			// Every merge leaves the previous record as garbage.
+			store.write(path("a"), files("a", 5000 + i, 1));
+		}
+		assertTrue(spillFileSize() < 16 * 1024 * 1024);
+		assertEquals(5200, store.read(path("a")).size());
+		final List<TrackedFile> kept = store.read(path("kept"));
+		assertEquals(10, kept.size());
+		assertEquals(path("kept", 9), kept.get(9).path);
+	}
+
+	/**
+	 * Tests the files of a directory failing to be read back, e.g. as the
+	 * scan thread is interrupted, are left spilled.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void testFailedRead() throws IOException
+	{
+		store.write(path("a"), files("a", 0, 3));
+		store.write(path("b"), files("b", 0, 2));
+		Thread.currentThread().interrupt();
+		try
+		{
+			store.read(path("a"));
+			fail("The read is interrupted.");
+		}
+		catch (IOException e)
+		{
+			// Expected.
+		}
+		finally
+		{
+			Thread.interrupted();
+		}
+		assertTrue(store.contains(path("a")));
+		assertEquals(5, store.getEntries());
+	}
+
+	/**
+	 * Tests nothing is spilled anymore once cleared.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void testClear() throws IOException
+	{
+		store.write(path("a"), files("a", 0, 3));
+		store.clear();
+		assertTrue(store.isEmpty());
+		assertEquals(0, store.getEntries());
+		assertTrue(store.read(path("a")).isEmpty());
+		assertEquals(0, spillFileSize());
+		store.write(path("b"), files("b", 0, 1));
+		assertEquals(1, store.read(path("b")).size());
+	}
+
+	/**
+	 * Gets the size of the spill file.
+	 *
+	 * @return the size
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private long spillFileSize() throws IOException
+	{
+		try (Stream<Path> files = Files.list(directory))
+		{
+			return files.mapToLong(file -> file.toFile().length()).sum();
+		}
+	}
+
+	/**
+	 * Creates the files of a directory.
+	 *
+	 * @param name
+	 *            the name of the directory
+	 * @param from
+	 *            the index of the first file
+	 * @param count
+	 *            the number of files
+	 * @return the files
+	 */
+	private static List<TrackedFile> files(String name, int from, int count)
+	{
+		final List<TrackedFile> files = new ArrayList<>(count);
+		for (int i = from; i < from + count; i++)
+		{
+			files.add(new TrackedFile(path(name, i), 1000 + i, 10 + i, false));
+		}
+		return files;
+	}
+
+	/**
+	 * Gets the path of a directory.
+	 *
+	 * @param name
+	 *            the name
+	 * @return the path
+	 */
+	private static String path(String name)
+	{
+		return File.separator + "watched" + File.separator + name;
+	}
+
+	/**
+	 * Gets the path of a file of a directory.
+	 *
+	 * @param name
+	 *            the name of the directory
+	 * @param index
+	 *            the index of the file
+	 * @return the path
+	 */
+	private static String path(String name, int index)
+	{
+		return path(name) + File.separator + "f" + index;
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ * FileWatcher - WatchEventPublisherTest.java, Oct 19, 2026 4:26:53 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.filewatcher.info.FileEvent;
+import com.varra.filewatcher.info.FileInfo;
+import com.varra.filewatcher.listener.FileNotificationListener;
+import com.varra.filewatcher.listener.WatchEventType;
+import junit.framework.TestCase;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the {@link WatchEventPublisher}: the coalescing of the events
+ * buffered, the demand of the subscribers and their termination.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+public class WatchEventPublisherTest extends TestCase
+{
+
+	/** The publisher. */
+	private WatchEventPublisher publisher;
+
+	/** The listener feeding the publisher. */
+	private FileNotificationListener listener;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception
+	{
+		publisher = new WatchEventPublisher(FileWatcher.builder().build(), "/watched", 3);
+		listener = publisher.getListener();
+	}
+
+	/**
+	 * Tests the events of the same path are coalesced while buffered.
+	 */
+	public void testCoalescing()
+	{
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		publisher.subscribe(subscriber);
+
+		listener.onCreateFile(file("/watched/created", 1));
+		listener.onModifyFile(file("/watched/created", 1), file("/watched/created", 2));
+		listener.onCreateFile(file("/watched/transient", 1));
+		listener.onDeleteFile(file("/watched/transient", 1));
+		listener.onModifyFile(file("/watched/modified", 1), file("/watched/modified", 2));
+		listener.onModifyFile(file("/watched/modified", 2), file("/watched/modified", 3));
+		listener.onDeleteFile(file("/watched/replaced", 1));
+		listener.onCreateFile(file("/watched/replaced", 2));
+		subscriber.subscription.request(Long.MAX_VALUE);
+
+		assertEquals(3, subscriber.events.size());
+		assertEvent(subscriber.events.get(0), WatchEventType.CREATE, null, 2);
+		assertEvent(subscriber.events.get(1), WatchEventType.MODIFY, 1L, 3);
+		assertEvent(subscriber.events.get(2), WatchEventType.MODIFY, 1L, 2);
+	}
+
+	/**
+	 * Tests a subscriber is sent no more events than requested, and is
+	 * saturated once its buffer is full.
+	 */
+	public void testDemand()
+	{
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		publisher.subscribe(subscriber);
+		subscriber.subscription.request(1);
+		for (int i = 0; i < 4; i++)
+		{
+			listener.onCreateFile(file("/watched/" + i, i));
+		}
+		assertEquals(1, subscriber.events.size());
+		assertTrue(publisher.isSaturated());
+
+		subscriber.subscription.request(2);
+		assertEquals(3, subscriber.events.size());
+		assertFalse(publisher.isSaturated());
+		assertEquals("/watched/2", subscriber.events.get(2).getFileInfo().getAbsolutePath());
+
+		subscriber.subscription.request(5);
+		listener.onCreateFile(file("/watched/4", 4));
+		assertEquals(5, subscriber.events.size());
+		assertNull(subscriber.error);
+	}
+
+	/**
+	 * Tests a request of no events is signalled as an error, and nothing else
+	 * is sent afterwards (rule 3.9).
+	 */
+	public void testNonPositiveRequest()
+	{
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		publisher.subscribe(subscriber);
+		listener.onCreateFile(file("/watched/a", 1));
+		subscriber.subscription.request(0);
+		assertTrue(subscriber.error instanceof IllegalArgumentException);
+		assertTrue(subscriber.events.isEmpty());
+
+		subscriber.subscription.request(1);
+		listener.onCreateFile(file("/watched/b", 1));
+		assertTrue(subscriber.events.isEmpty());
+		assertFalse(publisher.hasSubscribers());
+	}
+
+	/**
+	 * Tests the subscribers are completed on close, once sent the events
+	 * buffered for them.
+	 */
+	public void testCompletionOnClose()
+	{
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		publisher.subscribe(subscriber);
+		listener.onCreateFile(file("/watched/a", 1));
+		publisher.close();
+		assertFalse(subscriber.completed);
+
+		subscriber.subscription.request(1);
+		assertEquals(1, subscriber.events.size());
+		assertTrue(subscriber.completed);
+
+		final RecordingSubscriber late = new RecordingSubscriber();
+		publisher.subscribe(late);
+		assertTrue(late.completed);
+	}
+
+	/**
+	 * Tests no other signal precedes the end of onSubscribe, even if the
+	 * publisher is closed meanwhile (rule 1.3).
+	 */
+	public void testOnSubscribeFirst()
+	{
+		final RecordingSubscriber subscriber = new RecordingSubscriber()
+		{
+
+			@Override
+			public void onSubscribe(Subscription subscription)
+			{
+				super.onSubscribe(subscription);
+				subscribing = true;
+				publisher.close();
+				subscribing = false;
+			}
+		};
+		publisher.subscribe(subscriber);
+		assertTrue(subscriber.completed);
+		assertFalse(subscriber.signalledWhileSubscribing);
+	}
+
+	/**
+	 * Asserts the event is as expected.
+	 *
+	 * @param event
+	 *            the event
+	 * @param type
+	 *            the type
+	 * @param oldSize
+	 *            the size of the old file info, null if none
+	 * @param size
+	 *            the size of the file info
+	 */
+	private static void assertEvent(FileEvent event, WatchEventType type, Long oldSize, long size)
+	{
+		assertEquals(type, event.getType());
+		if (oldSize == null)
+		{
+			assertNull(event.getOldFileInfo());
+		}
+		else
+		{
+			assertEquals(oldSize.longValue(), event.getOldFileInfo().getSize());
+		}
+		assertEquals(size, event.getFileInfo().getSize());
+	}
+
+	/**
+	 * Creates the file info of a file.
+	 *
+	 * @param path
+	 *            the path
+	 * @param size
+	 *            the size
+	 * @return the file info
+	 */
+	private static FileInfo file(String path, long size)
+	{
+		return new FileInfo(path, 1000, size, false);
+	}
+
+	/**
+	 * A subscriber recording the signals, requesting nothing by itself.
+	 */
+	private static class RecordingSubscriber implements Subscriber<FileEvent>
+	{
+
+		/** The subscription. */
+		Subscription subscription;
+
+		/** The events. */
+		final List<FileEvent> events = new ArrayList<>();
+
+		/** The error, if any. */
+		Throwable error;
+
+		/** Whether completed. */
+		boolean completed;
+
+		/** Whether in onSubscribe. */
+		boolean subscribing;
+
+		/** Whether signalled while in onSubscribe. */
+		boolean signalledWhileSubscribing;
+
+		/* (non-Javadoc)
+		 * @see org.reactivestreams.Subscriber#onSubscribe(org.reactivestreams.Subscription)
+		 */
+		@Override
+		public void onSubscribe(Subscription subscription)
+		{
+			this.subscription = subscription;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.reactivestreams.Subscriber#onNext(java.lang.Object)
+		 */
+		@Override
+		public void onNext(FileEvent event)
+		{
+			signalledWhileSubscribing |= subscribing;
+			events.add(event);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.reactivestreams.Subscriber#onError(java.lang.Throwable)
+		 */
+		@Override
+		public void onError(Throwable error)
+		{
+			signalledWhileSubscribing |= subscribing;
+			this.error = error;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.reactivestreams.Subscriber#onComplete()
+		 */
+		@Override
+		public void onComplete()
+		{
+			signalledWhileSubscribing |= subscribing;
+			completed = true;
+		}
+	}
+}
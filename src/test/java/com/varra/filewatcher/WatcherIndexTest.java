@@ -0,0 +1,175 @@
+/*
+ * FileWatcher - WatcherIndexTest.java, Oct 19, 2026 9:14:52 PM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher;
+
+import com.varra.filewatcher.info.FileInfo;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Tests the {@link WatcherIndex} queried with an {@link IndexQuery}: by
+ * directory, by glob and by size and last modified ranges.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+public class WatcherIndexTest extends TestCase
+{
+
+	/** The index. */
+	private WatcherIndex index;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception
+	{
+		index = new WatcherIndex(UnaryOperator.identity());
+		final Map<String, TrackedFile> changed = new HashMap<>();
+		put(changed, new TrackedFile(path("/w"), 1000, 0, true));
+		put(changed, new TrackedFile(path("/w/a"), 1000, 0, true));
+		put(changed, new TrackedFile(path("/w/a/x.pdf"), 1001, 10, false));
+		put(changed, new TrackedFile(path("/w/a/y.txt"), 1002, 20, false));
+		put(changed, new TrackedFile(path("/w/a/b"), 1000, 0, true));
+		put(changed, new TrackedFile(path("/w/a/b/z.pdf"), 1003, 30, false));
+		put(changed, new TrackedFile(path("/w/a-b"), 1004, 40, false));
+		put(changed, new TrackedFile(path("/w/ab.pdf"), 1005, 50, false));
+		index.apply(changed);
+	}
+
+	/**
+	 * Tests a directory query finds the directory and everything under it,
+	 * sorted by path, and none of the siblings sharing its name as a prefix.
+	 */
+	public void testDirectory()
+	{
+		assertEquals(Arrays.asList(path("/w/a"), path("/w/a/b"), path("/w/a/b/z.pdf"), path("/w/a/x.pdf"),
+				path("/w/a/y.txt")), paths(index.find(IndexQuery.builder().directory(path("/w/a")).build())));
+		assertEquals(Arrays.asList(path("/w/a/b"), path("/w/a/b/z.pdf"), path("/w/a/x.pdf"), path("/w/a/y.txt")),
+				paths(index.find(IndexQuery.builder().directory(path("/w/a/")).build())));
+		assertEquals(Arrays.asList(path("/w/a-b")), paths(index.find(IndexQuery.builder().directory(path("/w/a-b"))
+				.build())));
+		assertTrue(index.find(IndexQuery.builder().directory(path("/w/c")).build()).isEmpty());
+		assertEquals(8, index.count(IndexQuery.ALL));
+	}
+
+	/**
+	 * Tests a glob matches the paths relative to the directory, at its own
+	 * level or at any depth.
+	 */
+	public void testGlob()
+	{
+		assertEquals(Arrays.asList(path("/w/a/x.pdf")), paths(index.find(IndexQuery.builder().directory(path("/w/a"))
+				.glob("*.pdf").build())));
+		assertEquals(Arrays.asList(path("/w/a/b/z.pdf")), paths(index.find(IndexQuery.builder()
+				.directory(path("/w/a")).glob("**/*.pdf").build())));
+		// The directory itself is the empty relative path.
+		assertEquals(Arrays.asList(path("/w/a"), path("/w/a/b"), path("/w/a/x.pdf"), path("/w/a/y.txt")), paths(
+				index.find(IndexQuery.builder().directory(path("/w/a")).glob("*").build())));
+		assertEquals(3, index.count(IndexQuery.builder().directory(path("/w")).glob("**.pdf").build()));
+	}
+
+	/**
+	 * Tests the size and last modified ranges are inclusive, and unbounded
+	 * when not given.
+	 */
+	public void testRanges()
+	{
+		final IndexQuery sized = IndexQuery.builder().minSize(20).maxSize(40).build();
+		assertEquals(Arrays.asList(path("/w/a-b"), path("/w/a/b/z.pdf"), path("/w/a/y.txt")), paths(index.find(sized)));
+		assertEquals(90, index.totalSize(sized));
+		assertEquals(2, index.count(IndexQuery.builder().minSize(40).build()));
+
+		final IndexQuery modified = IndexQuery.builder().modifiedFrom(1002).modifiedTo(1004).build();
+		assertEquals(Arrays.asList(path("/w/a-b"), path("/w/a/b/z.pdf"), path("/w/a/y.txt")),
+				paths(index.find(modified)));
+		assertEquals(3, index.count(IndexQuery.builder().modifiedFrom(1003).build()));
+		assertEquals(4, index.count(IndexQuery.builder().modifiedTo(1001).build()));
+		assertEquals(1, index.count(IndexQuery.builder().modifiedTo(1001).excludeDirectories(true).build()));
+	}
+
+	/**
+	 * Tests the consumer of a query is called with the index unlocked, a scan
+	 * applies its changes meanwhile.
+	 *
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	public void testForEachUnlocked() throws InterruptedException
+	{
+		final List<String> applied = Collections.synchronizedList(new ArrayList<>());
+		index.forEach(IndexQuery.builder().directory(path("/w/a/b")).build(), fileInfo -> {
+			final Thread scan = new Thread(() -> {
+				index.apply(Collections.singletonMap(fileInfo.getAbsolutePath(), null));
+				applied.add(fileInfo.getAbsolutePath());
+			});
+			scan.start();
+			try
+			{
+				scan.join(5_000);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		});
+		assertEquals(Arrays.asList(path("/w/a/b"), path("/w/a/b/z.pdf")), applied);
+		assertNull(index.get(path("/w/a/b")));
+		assertEquals(3, index.getScans());
+	}
+
+	/**
+	 * Puts the tracked file by its path.
+	 *
+	 * @param changed
+	 *            the changed entries
+	 * @param trackedFile
+	 *            the tracked file
+	 */
+	private static void put(Map<String, TrackedFile> changed, TrackedFile trackedFile)
+	{
+		changed.put(trackedFile.path, trackedFile);
+	}
+
+	/**
+	 * Gets the paths of the file infos.
+	 *
+	 * @param fileInfos
+	 *            the file infos
+	 * @return the paths
+	 */
+	private static List<String> paths(List<FileInfo> fileInfos)
+	{
+		final List<String> paths = new ArrayList<>(fileInfos.size());
+		for (FileInfo fileInfo : fileInfos)
+		{
+			paths.add(fileInfo.getAbsolutePath());
+		}
+		return paths;
+	}
+
+	/**
+	 * Gets the platform path of the given path.
+	 *
+	 * @param path
+	 *            the path, separated by /
+	 * @return the platform path
+	 */
+	private static String path(String path)
+	{
+		return path.replace('/', File.separatorChar);
+	}
+}
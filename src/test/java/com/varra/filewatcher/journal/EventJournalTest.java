@@ -0,0 +1,219 @@
+/*
+ * FileWatcher - EventJournalTest.java, Oct 19, 2026 10:12:40 AM
+ *
+ * Copyright 2012 varra Ltd, Inc. All rights reserved.
+ * varra proprietary/confidential. Use is subject to license terms.
+ */
+package com.varra.filewatcher.journal;
+
+import com.varra.filewatcher.info.FileInfo;
+import com.varra.filewatcher.listener.WatchEventType;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Tests the {@link EventJournal}: the replay across a reopen, the recovery
+ * of a torn record and the retention.
+ *
+ * @author Rajakrishna V. Reddy
+ * @version 1.0
+ */
+public class EventJournalTest extends TestCase
+{
+
+	/** The directory of the journal. */
+	private Path directory;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception
+	{
+		directory = Files.createTempDirectory("journal");
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception
+	{
+		try (Stream<Path> files = Files.walk(directory))
+		{
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	/**
+	 * Tests the records are replayed from the given sequence after a reopen.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void testReplayAfterReopen() throws IOException
+	{
+		try (EventJournal journal = new EventJournal(directory))
+		{
+			assertEquals(1, journal.append(WatchEventType.CREATE, file("/a")));
+			assertEquals(2, journal.append(WatchEventType.MODIFY, file("/a")));
+			assertEquals(3, journal.append(WatchEventType.DELETE, file("/a")));
+			journal.commit();
+		}
+		try (EventJournal journal = new EventJournal(directory))
+		{
+			assertEquals(4, journal.getNextSequence());
+			final List<JournalRecord> records = replay(journal, 2);
+			assertEquals(2, records.size());
+			assertEquals(WatchEventType.MODIFY, records.get(0).getType());
+			assertEquals(2, records.get(0).toFileInfo().getSequence());
+			assertEquals(WatchEventType.DELETE, records.get(1).getType());
+		}
+	}
+
+	/**
+	 * Tests a torn record at the end of the journal is dropped on reopening,
+	 * and overwritten by the next append.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void testTornRecordDropped() throws IOException
+	{
+		try (EventJournal journal = new EventJournal(directory))
+		{
+			journal.append(WatchEventType.CREATE, file("/a"));
+			journal.append(WatchEventType.CREATE, file("/torn"));
+			journal.commit();
+		}
+		tear("/torn");
+		try (EventJournal journal = new EventJournal(directory))
+		{
+			assertEquals(2, journal.getNextSequence());
+			assertEquals(1, replay(journal, 1).size());
+			assertEquals(2, journal.append(WatchEventType.CREATE, file("/b")));
+			journal.commit();
+		}
+		try (EventJournal journal = new EventJournal(directory))
+		{
+			final List<JournalRecord> records = replay(journal, 1);
+			assertEquals(2, records.size());
+			assertEquals("/b", records.get(1).getPath());
+			assertEquals(3, journal.getNextSequence());
+		}
+	}
+
+	/**
+	 * Tests the segments are rolled and retained by age even when they never
+	 * fill up.
+	 *
+	 * @throws Exception
+	 *             the exception
+	 */
+	public void testAgeRetentionOfQuietJournal() throws Exception
+	{
+		try (EventJournal journal = new EventJournal(directory, 64 * 1024, 0, 20))
+		{
+			for (int i = 0; i < 3; i++)
+			{
+				journal.append(WatchEventType.CREATE, file("/" + i));
+				Thread.sleep(100);
+				journal.commit();
+			}
+			assertTrue(journal.getFirstSequence() > 1);
+			assertTrue(replay(journal, 1).size() < 3);
+		}
+	}
+
+	/**
+	 * Replays the journal from the given sequence.
+	 *
+	 * @param journal
+	 *            the journal
+	 * @param fromSequence
+	 *            the from sequence
+	 * @return the records
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static List<JournalRecord> replay(EventJournal journal, long fromSequence) throws IOException
+	{
+		final List<JournalRecord> records = new ArrayList<>();
+		journal.replay(fromSequence, records::add);
+		return records;
+	}
+
+	/**
+	 * Corrupts the record of the given path, as a crash in the middle of
+	 * writing it would.
+	 *
+	 * @param path
+	 *            the path
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void tear(String path) throws IOException
+	{
+		final byte[] needle = path.getBytes(StandardCharsets.UTF_8);
+		try (Stream<Path> files = Files.list(directory))
+		{
+			for (Path segment : (Iterable<Path>) files::iterator)
+			{
+				final byte[] bytes = Files.readAllBytes(segment);
+				for (int i = 0; i + needle.length <= bytes.length; i++)
+				{
+					if (matches(bytes, i, needle))
+					{
+						bytes[i + needle.length - 1] ^= 0x7f;
+						Files.write(segment, bytes);
+						return;
+					}
+				}
+			}
+		}
+		fail("No record of " + path);
+	}
+
+	/**
+	 * Checks if the bytes hold the needle at the given offset.
+	 *
+	 * @param bytes
+	 *            the bytes
+	 * @param offset
+	 *            the offset
+	 * @param needle
+	 *            the needle
+	 * @return true, if matches
+	 */
+	private static boolean matches(byte[] bytes, int offset, byte[] needle)
+	{
+		for (int i = 0; i < needle.length; i++)
+		{
+			if (bytes[offset + i] != needle[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Creates the file info of a file of the given path.
+	 *
+	 * @param path
+	 *            the path
+	 * @return the file info
+	 */
+	private static FileInfo file(String path)
+	{
+		return new FileInfo(path, 1000, 10, false);
+	}
+}